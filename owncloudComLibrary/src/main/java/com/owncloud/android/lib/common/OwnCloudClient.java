@@ -36,7 +36,10 @@ import com.owncloud.android.lib.common.authentication.OwnCloudCredentialsFactory
 import com.owncloud.android.lib.common.authentication.OwnCloudCredentialsFactory.OwnCloudAnonymousCredentials;
 import com.owncloud.android.lib.common.http.HttpClient;
 import com.owncloud.android.lib.common.http.HttpConstants;
+import com.owncloud.android.lib.common.http.RetryBudget;
+import com.owncloud.android.lib.common.http.RetryPolicy;
 import com.owncloud.android.lib.common.http.methods.HttpBaseMethod;
+import com.owncloud.android.lib.common.http.methods.HttpMethodCallback;
 import com.owncloud.android.lib.common.network.RedirectionPath;
 import com.owncloud.android.lib.common.utils.Log_OC;
 import com.owncloud.android.lib.common.utils.RandomUtils;
@@ -76,8 +79,23 @@ public class OwnCloudClient extends HttpClient {
      */
     private OwnCloudClientManager mOwnCloudClientManager = null;
 
-    private String mRedirectedLocation;
-    private boolean mFollowRedirects;
+    private volatile boolean mFollowRedirects;
+
+    /**
+     * Headers included in every request executed by this client, such as the credentials. Replaced as a whole
+     * on every change so the requests being executed in other threads always see a consistent set.
+     */
+    private volatile Headers mClientRequestHeaders = Headers.of();
+
+    /**
+     * Policy to retry idempotent methods on transient failures, unless they set their own
+     */
+    private volatile RetryPolicy mRetryPolicy = RetryPolicy.DEFAULT;
+
+    /**
+     * Retries left to all the methods executed by this client
+     */
+    private volatile RetryBudget mRetryBudget = new RetryBudget();
 
     public OwnCloudClient(Uri baseUri) {
         if (baseUri == null) {
@@ -89,7 +107,10 @@ public class OwnCloudClient extends HttpClient {
         Log_OC.d(TAG + " #" + mInstanceNumber, "Creating OwnCloudClient");
 
         clearCredentials();
-        clearCookies();
+        // cookies of the host may belong to another account in the same server
+        if (baseUri.getHost() != null) {
+            clearCookies(baseUri.getHost());
+        }
     }
 
     public void clearCredentials() {
@@ -109,16 +130,17 @@ public class OwnCloudClient extends HttpClient {
         int status;
 
         do {
-            setRequestId(method);
+            setRequestHeaders(method);
 
-            status = method.execute();
-            checkFirstRedirection(method);
+            status = executeWithRetries(method);
+            // kept per call, as other threads may be executing methods with this client
+            final String redirectedLocation = getRedirectedLocation(method);
 
-            if (mFollowRedirects && !isIdPRedirection()) {
+            if (mFollowRedirects && !isIdPRedirection(redirectedLocation)) {
                 status = followRedirection(method).getLastStatus();
             }
 
-            repeatWithFreshCredentials = checkUnauthorizedAccess(status, repeatCounter);
+            repeatWithFreshCredentials = checkUnauthorizedAccess(status, repeatCounter, redirectedLocation);
             if (repeatWithFreshCredentials) {
                 repeatCounter++;
             }
@@ -127,24 +149,131 @@ public class OwnCloudClient extends HttpClient {
         return status;
     }
 
-    private void checkFirstRedirection(HttpBaseMethod method) {
-        final String location = method.getResponseHeader(HttpConstants.LOCATION_HEADER_LOWER);
-        if (location != null && !location.isEmpty()) {
-            mRedirectedLocation = location;
+    /**
+     * Executes a method without blocking the calling thread.
+     * <p>
+     * As {@link #executeHttpMethod(HttpBaseMethod)}, repeats the request once if it fails as unauthorized and the
+     * credentials could be refreshed. Redirections are not followed; the callback receives them.
+     *
+     * @param method   Method to execute
+     * @param callback Callback to notify, in a background thread, when the execution finishes
+     */
+    public void executeHttpMethodAsync(final HttpBaseMethod method, final HttpMethodCallback callback) {
+        executeHttpMethodAsync(method, callback, 0);
+    }
+
+    private void executeHttpMethodAsync(final HttpBaseMethod method, final HttpMethodCallback callback,
+                                        final int repeatCounter) {
+        setRequestHeaders(method);
+        method.executeAsync(new HttpMethodCallback() {
+            @Override
+            public void onResponse(HttpBaseMethod executedMethod, int status) {
+                if (checkUnauthorizedAccess(status, repeatCounter,
+                        getRedirectedLocation(executedMethod))) {
+                    exhaustResponse(executedMethod.getResponseBodyAsStream());
+                    executeHttpMethodAsync(method, callback, repeatCounter + 1);
+                } else {
+                    callback.onResponse(executedMethod, status);
+                }
+            }
+
+            @Override
+            public void onFailure(HttpBaseMethod executedMethod, Exception exception) {
+                callback.onFailure(executedMethod, exception);
+            }
+        });
+    }
+
+    /**
+     * Executes a method, and executes it again while it fails with a transient error and the {@link RetryPolicy}
+     * and {@link RetryBudget} allow it.
+     *
+     * @param method Method to execute
+     * @return Status code of the last execution
+     * @throws Exception Exception thrown by the last execution
+     */
+    private int executeWithRetries(HttpBaseMethod method) throws Exception {
+        final RetryPolicy retryPolicy = (method.getRetryPolicy() != null)
+                ? method.getRetryPolicy()
+                : (method.isIdempotent() ? mRetryPolicy : RetryPolicy.NONE);
+        final RetryBudget retryBudget = mRetryBudget;
+
+        while (true) {
+            int status;
+            try {
+                status = method.execute();
+
+            } catch (Exception e) {
+                int retry = method.getRetryCount() + 1;
+                if (retry > retryPolicy.getMaxRetries() || !retryPolicy.isRetryableException(e) ||
+                        method.isAborted() || !retryBudget.recordFailure()) {
+                    throw e;
+                }
+                long delay = retryPolicy.getBackoffDelay(retry);
+                Log_OC.w(TAG + " #" + mInstanceNumber, "Retry " + retry + " of " +
+                        method.getClass().getSimpleName() + " in " + delay + " ms after " + e);
+                if (!sleepBeforeRetry(delay) || method.isAborted()) {
+                    throw e;
+                }
+                method.onRetry(true);
+                continue;
+            }
+
+            int retry = method.getRetryCount() + 1;
+            if (retry > retryPolicy.getMaxRetries() || !retryPolicy.isRetryableStatus(status)) {
+                retryBudget.recordCompletion();
+                return status;
+            }
+
+            long retryAfter = RetryPolicy.parseRetryAfter(
+                    method.getResponseHeader(HttpConstants.RETRY_AFTER_HEADER)
+            );
+            if (retryAfter > retryPolicy.getMaxRetryAfter() || method.isAborted() ||
+                    !retryBudget.recordFailure()) {
+                return status;
+            }
+            long delay = (retryAfter >= 0) ? retryAfter : retryPolicy.getBackoffDelay(retry);
+            Log_OC.w(TAG + " #" + mInstanceNumber, "Retry " + retry + " of " +
+                    method.getClass().getSimpleName() + " in " + delay + " ms after status " + status);
+
+            exhaustResponse(method.getResponseBodyAsStream());
+            if (!sleepBeforeRetry(delay) || method.isAborted()) {
+                return status;
+            }
+            method.onRetry(false);
         }
     }
 
+    /**
+     * @return 'false' if the thread was interrupted while waiting
+     */
+    private boolean sleepBeforeRetry(long delay) {
+        try {
+            Thread.sleep(delay);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private String getRedirectedLocation(HttpBaseMethod method) {
+        final String location = method.getResponseHeader(HttpConstants.LOCATION_HEADER_LOWER);
+        return (location != null && !location.isEmpty()) ? location : null;
+    }
+
     private int executeRedirectedHttpMethod(HttpBaseMethod method) throws Exception {
         boolean repeatWithFreshCredentials;
         int repeatCounter = 0;
         int status;
 
         do {
-            setRequestId(method);
+            setRequestHeaders(method);
 
-            status = method.execute();
+            status = executeWithRetries(method);
 
-            repeatWithFreshCredentials = checkUnauthorizedAccess(status, repeatCounter);
+            // only redirections to other than an identity provider are followed
+            repeatWithFreshCredentials = checkUnauthorizedAccess(status, repeatCounter, null);
             if (repeatWithFreshCredentials) {
                 repeatCounter++;
             }
@@ -153,19 +282,45 @@ public class OwnCloudClient extends HttpClient {
         return status;
     }
 
-    private void setRequestId(HttpBaseMethod method) {
-        // Clean previous request id. This is a bit hacky but is the only way to add request headers in WebDAV
-        // methods by using Dav4Android
-        deleteHeaderForAllRequests(OC_X_REQUEST_ID);
+    /**
+     * Sets the headers of this client and a new request id in the method to execute. They are scoped to the
+     * method, so concurrent requests never share them.
+     *
+     * @param method method about to be executed
+     */
+    private void setRequestHeaders(HttpBaseMethod method) {
+        final Headers clientRequestHeaders = mClientRequestHeaders;
+        for (String headerName : clientRequestHeaders.names()) {
+            method.setRequestHeader(headerName, clientRequestHeaders.get(headerName));
+        }
 
         String requestId = RandomUtils.generateRandomUUID();
 
         // Header to allow tracing requests in apache and ownCloud logs
-        addHeaderForAllRequests(OC_X_REQUEST_ID, requestId);
+        method.setRequestHeader(OC_X_REQUEST_ID, requestId);
 
         Log_OC.d(TAG, "Executing " + method.getClass().getSimpleName() + " in request with id " + requestId);
     }
 
+    /**
+     * Sets a header that will be included in all the requests executed by this client from now on, replacing
+     * any previous value.
+     *
+     * @param headerName  header name
+     * @param headerValue header value
+     */
+    public synchronized void setClientRequestHeader(String headerName, String headerValue) {
+        mClientRequestHeaders = mClientRequestHeaders.newBuilder()
+                .set(headerName, headerValue)
+                .build();
+    }
+
+    public synchronized void removeClientRequestHeader(String headerName) {
+        mClientRequestHeaders = mClientRequestHeaders.newBuilder()
+                .removeAll(headerName)
+                .build();
+    }
+
     public RedirectionPath followRedirection(HttpBaseMethod method) throws Exception {
         int redirectionsCount = 0;
         int status = method.getStatusCode();
@@ -341,9 +496,16 @@ public class OwnCloudClient extends HttpClient {
         return cookiesString.toString();
     }
 
+    /**
+     * Replaces the cookies of the server with the ones of the current account, so no cookie of other account in
+     * the same server is sent with its credentials.
+     *
+     * @param cookies Cookies of the account; empty if it has none
+     */
     public void setCookiesForCurrentAccount(List<Cookie> cookies) {
-        getOkHttpClient().cookieJar().saveFromResponse(
-                HttpUrl.parse(getAccount().getBaseUri().toString()),
+        Uri serverUri = (getAccount() != null) ? getAccount().getBaseUri() : mBaseUri;
+        replaceCookies(
+                HttpUrl.parse(serverUri.toString()),
                 cookies
         );
     }
@@ -373,12 +535,13 @@ public class OwnCloudClient extends HttpClient {
      *
      * @param status
      * @param repeatCounter
+     * @param redirectedLocation Location the server redirected the request to, or NULL
      * @return
      */
-    private boolean checkUnauthorizedAccess(int status, int repeatCounter) {
+    private boolean checkUnauthorizedAccess(int status, int repeatCounter, String redirectedLocation) {
         boolean credentialsWereRefreshed = false;
 
-        if (shouldInvalidateAccountCredentials(status)) {
+        if (shouldInvalidateAccountCredentials(status, redirectedLocation)) {
             boolean invalidated = invalidateAccountCredentials();
 
             if (invalidated) {
@@ -417,12 +580,14 @@ public class OwnCloudClient extends HttpClient {
      * of a network request just performed.
      *
      * @param httpStatusCode Result of the last request ran with the 'credentials' belows.
+     * @param redirectedLocation Location the server redirected the request to, or NULL.
      * @return 'True' if credentials should and might be invalidated, 'false' if shouldn't or
      * cannot be invalidated with the given arguments.
      */
-    private boolean shouldInvalidateAccountCredentials(int httpStatusCode) {
+    private boolean shouldInvalidateAccountCredentials(int httpStatusCode, String redirectedLocation) {
 
-        boolean should = (httpStatusCode == HttpConstants.HTTP_UNAUTHORIZED || isIdPRedirection());   // invalid credentials
+        boolean should = (httpStatusCode == HttpConstants.HTTP_UNAUTHORIZED ||
+                isIdPRedirection(redirectedLocation));   // invalid credentials
 
         should &= (mCredentials != null &&         // real credentials
                 !(mCredentials instanceof OwnCloudCredentialsFactory.OwnCloudAnonymousCredentials));
@@ -437,7 +602,7 @@ public class OwnCloudClient extends HttpClient {
      * Invalidates credentials stored for the given account in the system  {@link AccountManager} and in
      * current {@link OwnCloudClientManagerFactory#getDefaultSingleton()} instance.
      * <p>
-     * {@link #shouldInvalidateAccountCredentials(int)} should be called first.
+     * {@link #shouldInvalidateAccountCredentials(int, String)} should be called first.
      *
      * @return 'True' if invalidation was successful, 'false' otherwise.
      */
@@ -462,12 +627,37 @@ public class OwnCloudClient extends HttpClient {
     /**
      * Check if the redirection is to an identity provider such as SAML or wayf
      *
+     * @param redirectedLocation Location the server redirected the request to, or NULL
      * @return true if the redirection location includes SAML or wayf, false otherwise
      */
-    private boolean isIdPRedirection() {
-        return (mRedirectedLocation != null &&
-                (mRedirectedLocation.toUpperCase().contains("SAML") ||
-                        mRedirectedLocation.toLowerCase().contains("wayf")));
+    private boolean isIdPRedirection(String redirectedLocation) {
+        return (redirectedLocation != null &&
+                (redirectedLocation.toUpperCase().contains("SAML") ||
+                        redirectedLocation.toLowerCase().contains("wayf")));
+    }
+
+    public RetryPolicy getRetryPolicy() {
+        return mRetryPolicy;
+    }
+
+    /**
+     * Sets the policy to retry the idempotent methods executed by this client on transient failures.
+     *
+     * @param retryPolicy Policy to apply; {@link RetryPolicy#NONE} to disable the retries
+     */
+    public void setRetryPolicy(RetryPolicy retryPolicy) {
+        mRetryPolicy = (retryPolicy != null) ? retryPolicy : RetryPolicy.NONE;
+    }
+
+    public RetryBudget getRetryBudget() {
+        return mRetryBudget;
+    }
+
+    public void setRetryBudget(RetryBudget retryBudget) {
+        if (retryBudget == null) {
+            throw new IllegalArgumentException("Parameter 'retryBudget' cannot be NULL");
+        }
+        mRetryBudget = retryBudget;
     }
 
     public boolean followRedirects() {
@@ -38,6 +38,7 @@ import com.owncloud.android.lib.common.accounts.AccountTypeUtils;
 import com.owncloud.android.lib.common.accounts.AccountUtils;
 import com.owncloud.android.lib.common.accounts.AccountUtils.AccountNotFoundException;
 import com.owncloud.android.lib.common.authentication.OwnCloudCredentialsFactory;
+import com.owncloud.android.lib.common.http.HttpClient;
 import com.owncloud.android.lib.resources.status.OwnCloudVersion;
 
 import java.io.IOException;
@@ -159,4 +160,18 @@ public class OwnCloudClientFactory {
 
         return client;
     }
-}
\ No newline at end of file
+
+    /**
+     * Enables or disables HTTP/2 for the clients created from now on. When enabled, HTTP/2 is offered to the
+     * server and HTTP/1.1 is used if the server does not accept it.
+     *
+     * @param http2Enabled 'true' to multiplex the requests to a server over a single connection when possible
+     */
+    public static void setHttp2Enabled(boolean http2Enabled) {
+        HttpClient.setHttp2Enabled(http2Enabled);
+    }
+
+    public static boolean isHttp2Enabled() {
+        return HttpClient.isHttp2Enabled();
+    }
+}
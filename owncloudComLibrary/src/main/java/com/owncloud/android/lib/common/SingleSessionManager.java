@@ -218,7 +218,12 @@ public class SingleSessionManager implements OwnCloudClientManager {
         if (am != null && account.getSavedAccount() != null) {
             String recentCookies = am.getUserData(account.getSavedAccount(), AccountUtils.Constants.KEY_COOKIES);
             String previousCookies = reusedClient.getCookiesString();
-            if (recentCookies != null && previousCookies != "" && !recentCookies.equals(previousCookies)) {
+            // cookies of the server are shared with other accounts in it, so they are restored even if this one
+            // has none
+            boolean cookiesChanged = (recentCookies != null)
+                    ? !recentCookies.equals(previousCookies)
+                    : !"".equals(previousCookies);
+            if (cookiesChanged) {
                 AccountUtils.restoreCookies(account.getSavedAccount(), reusedClient, context);
             }
         }
@@ -43,12 +43,20 @@ import okhttp3.Cookie;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class AccountUtils {
 
     private static final String TAG = AccountUtils.class.getSimpleName();
 
+    /**
+     * Last cookies written to or read from the AccountManager for each account, to skip writing them again
+     * while they do not change
+     */
+    private static final ConcurrentHashMap<String, String> sSavedCookies = new ConcurrentHashMap<>();
+
     /**
      * Constructs full url to host and webdav resource basing on host version
      *
@@ -231,8 +239,9 @@ public class AccountUtils {
 
         if (client != null) {
             String cookiesString = client.getCookiesString();
-            if (!"".equals(cookiesString)) {
+            if (!"".equals(cookiesString) && !cookiesString.equals(sSavedCookies.get(savedAccount.name))) {
                 ac.setUserData(savedAccount, Constants.KEY_COOKIES, cookiesString);
+                sSavedCookies.put(savedAccount.name, cookiesString);
                 Log_OC.d(TAG, "Saving Cookies: " + cookiesString);
             }
         }
@@ -258,7 +267,13 @@ public class AccountUtils {
             Uri serverUri = (client.getBaseUri() != null) ? client.getBaseUri() : client.getUserFilesWebDavUri();
 
             String cookiesString = am.getUserData(account, Constants.KEY_COOKIES);
-            if (cookiesString != null) {
+            if (cookiesString == null) {
+                // cookies left in the server by other account must not be sent with the credentials of this one
+                sSavedCookies.remove(account.name);
+                client.setCookiesForCurrentAccount(Collections.<Cookie>emptyList());
+
+            } else {
+                sSavedCookies.put(account.name, cookiesString);
                 String[] rawCookies = cookiesString.split(";");
                 List<Cookie> cookieList = new ArrayList<>(rawCookies.length);
                 for (String rawCookie : rawCookies) {
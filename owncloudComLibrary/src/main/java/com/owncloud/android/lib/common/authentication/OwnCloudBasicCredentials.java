@@ -24,7 +24,6 @@
 package com.owncloud.android.lib.common.authentication;
 
 import com.owncloud.android.lib.common.OwnCloudClient;
-import com.owncloud.android.lib.common.http.HttpClient;
 import com.owncloud.android.lib.common.http.HttpConstants;
 import okhttp3.Credentials;
 import okhttp3.internal.Util;
@@ -49,10 +48,10 @@ public class OwnCloudBasicCredentials implements OwnCloudCredentials {
     @Override
     public void applyTo(OwnCloudClient client) {
         // Clear previous basic credentials
-        HttpClient.deleteHeaderForAllRequests(HttpConstants.AUTHORIZATION_HEADER);
-        HttpClient.deleteHeaderForAllRequests(HttpConstants.COOKIE_HEADER);
+        client.removeClientRequestHeader(HttpConstants.AUTHORIZATION_HEADER);
+        client.removeClientRequestHeader(HttpConstants.COOKIE_HEADER);
 
-        HttpClient.addHeaderForAllRequests(HttpConstants.AUTHORIZATION_HEADER,
+        client.setClientRequestHeader(HttpConstants.AUTHORIZATION_HEADER,
                 Credentials.basic(mUsername, mPassword, Util.UTF_8));
     }
 
@@ -24,7 +24,6 @@
 package com.owncloud.android.lib.common.authentication;
 
 import com.owncloud.android.lib.common.OwnCloudClient;
-import com.owncloud.android.lib.common.http.HttpClient;
 import com.owncloud.android.lib.common.http.HttpConstants;
 
 public class OwnCloudBearerCredentials implements OwnCloudCredentials {
@@ -40,10 +39,10 @@ public class OwnCloudBearerCredentials implements OwnCloudCredentials {
     @Override
     public void applyTo(OwnCloudClient client) {
         // Clear previous credentials
-        HttpClient.deleteHeaderForAllRequests(HttpConstants.AUTHORIZATION_HEADER);
-        HttpClient.deleteHeaderForAllRequests(HttpConstants.COOKIE_HEADER);
+        client.removeClientRequestHeader(HttpConstants.AUTHORIZATION_HEADER);
+        client.removeClientRequestHeader(HttpConstants.COOKIE_HEADER);
 
-        HttpClient.addHeaderForAllRequests(HttpConstants.AUTHORIZATION_HEADER,
+        client.setClientRequestHeader(HttpConstants.AUTHORIZATION_HEADER,
                 HttpConstants.BEARER_AUTHORIZATION_KEY + mAccessToken);
     }
 
@@ -25,7 +25,6 @@
 package com.owncloud.android.lib.common.authentication;
 
 import com.owncloud.android.lib.common.OwnCloudClient;
-import com.owncloud.android.lib.common.http.HttpClient;
 import com.owncloud.android.lib.common.http.HttpConstants;
 
 public class OwnCloudCredentialsFactory {
@@ -67,8 +66,8 @@ public class OwnCloudCredentialsFactory {
         @Override
         public void applyTo(OwnCloudClient client) {
             // Clear previous basic credentials
-            HttpClient.deleteHeaderForAllRequests(HttpConstants.AUTHORIZATION_HEADER);
-            HttpClient.deleteHeaderForAllRequests(HttpConstants.COOKIE_HEADER);
+            client.removeClientRequestHeader(HttpConstants.AUTHORIZATION_HEADER);
+            client.removeClientRequestHeader(HttpConstants.COOKIE_HEADER);
         }
 
         @Override
@@ -24,7 +24,6 @@
 package com.owncloud.android.lib.common.authentication;
 
 import com.owncloud.android.lib.common.OwnCloudClient;
-import com.owncloud.android.lib.common.http.HttpClient;
 import com.owncloud.android.lib.common.http.HttpConstants;
 
 public class OwnCloudSamlSsoCredentials implements OwnCloudCredentials {
@@ -40,10 +39,10 @@ public class OwnCloudSamlSsoCredentials implements OwnCloudCredentials {
     @Override
     public void applyTo(OwnCloudClient client) {
         // Clear previous credentials
-        HttpClient.deleteHeaderForAllRequests(HttpConstants.AUTHORIZATION_HEADER);
-        HttpClient.deleteHeaderForAllRequests(HttpConstants.COOKIE_HEADER);
+        client.removeClientRequestHeader(HttpConstants.AUTHORIZATION_HEADER);
+        client.removeClientRequestHeader(HttpConstants.COOKIE_HEADER);
 
-        HttpClient.addHeaderForAllRequests(HttpConstants.COOKIE_HEADER, mSessionCookie);
+        client.setClientRequestHeader(HttpConstants.COOKIE_HEADER, mSessionCookie);
         client.setFollowRedirects(false);
     }
 
@@ -0,0 +1,141 @@
+/* ownCloud Android Library is available under MIT license
+ *   Copyright (C) 2019 ownCloud GmbH.
+ *
+ *   Permission is hereby granted, free of charge, to any person obtaining a copy
+ *   of this software and associated documentation files (the "Software"), to deal
+ *   in the Software without restriction, including without limitation the rights
+ *   to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *   copies of the Software, and to permit persons to whom the Software is
+ *   furnished to do so, subject to the following conditions:
+ *
+ *   The above copyright notice and this permission notice shall be included in
+ *   all copies or substantial portions of the Software.
+ *
+ *   THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ *   EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ *   MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ *   NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ *   BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN
+ *   ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ *   CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *   THE SOFTWARE.
+ *
+ */
+
+package com.owncloud.android.lib.common.http;
+
+import okhttp3.Call;
+import okhttp3.Connection;
+import okhttp3.ConnectionPool;
+import okhttp3.EventListener;
+import okhttp3.Handshake;
+import okhttp3.Protocol;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Live usage statistics of a connection pool, gathered from the events of the calls that use it
+ *
+ * @see HttpClient#getConnectionPoolMetrics(android.net.Uri)
+ */
+public class ConnectionPoolMetrics extends EventListener {
+
+    private final ConnectionPool mConnectionPool;
+
+    private final AtomicLong mConnectionsAcquired = new AtomicLong();
+    private final AtomicLong mConnectionsOpened = new AtomicLong();
+    private final AtomicLong mConnectionsFailed = new AtomicLong();
+    private final AtomicLong mHandshakes = new AtomicLong();
+
+    ConnectionPoolMetrics(ConnectionPool connectionPool) {
+        mConnectionPool = connectionPool;
+    }
+
+    @Override
+    public void connectEnd(Call call, InetSocketAddress inetSocketAddress, Proxy proxy, Protocol protocol) {
+        mConnectionsOpened.incrementAndGet();
+    }
+
+    @Override
+    public void connectFailed(Call call, InetSocketAddress inetSocketAddress, Proxy proxy, Protocol protocol,
+                              IOException ioe) {
+        mConnectionsFailed.incrementAndGet();
+    }
+
+    @Override
+    public void secureConnectEnd(Call call, Handshake handshake) {
+        mHandshakes.incrementAndGet();
+    }
+
+    @Override
+    public void connectionAcquired(Call call, Connection connection) {
+        mConnectionsAcquired.incrementAndGet();
+    }
+
+    /**
+     * @return Number of connections in the pool not carrying any request.
+     */
+    public int getIdleConnectionCount() {
+        return mConnectionPool.idleConnectionCount();
+    }
+
+    /**
+     * @return Number of connections in the pool carrying at least one request.
+     */
+    public int getActiveConnectionCount() {
+        return Math.max(0, mConnectionPool.connectionCount() - mConnectionPool.idleConnectionCount());
+    }
+
+    /**
+     * @return Number of TLS handshakes completed.
+     */
+    public long getHandshakeCount() {
+        return mHandshakes.get();
+    }
+
+    /**
+     * @return Number of connections successfully opened.
+     */
+    public long getConnectionsOpened() {
+        return mConnectionsOpened.get();
+    }
+
+    /**
+     * @return Number of failed attempts to open a connection.
+     */
+    public long getConnectionsFailed() {
+        return mConnectionsFailed.get();
+    }
+
+    /**
+     * @return Number of times a call got a connection, new or reused.
+     */
+    public long getConnectionsAcquired() {
+        return mConnectionsAcquired.get();
+    }
+
+    /**
+     * @return Fraction, between 0 and 1, of the acquired connections that were reused from the pool.
+     */
+    public double getReuseRatio() {
+        long acquired = mConnectionsAcquired.get();
+        if (acquired == 0) {
+            return 0;
+        }
+        long reused = acquired - mConnectionsOpened.get();
+        return Math.max(0, reused) / (double) acquired;
+    }
+
+    @Override
+    public String toString() {
+        return "idle: " + getIdleConnectionCount() +
+                ", active: " + getActiveConnectionCount() +
+                ", opened: " + getConnectionsOpened() +
+                ", failed: " + getConnectionsFailed() +
+                ", handshakes: " + getHandshakeCount() +
+                ", reuse ratio: " + getReuseRatio();
+    }
+}
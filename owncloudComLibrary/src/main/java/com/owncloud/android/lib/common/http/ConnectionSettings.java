@@ -0,0 +1,91 @@
+/* ownCloud Android Library is available under MIT license
+ *   Copyright (C) 2019 ownCloud GmbH.
+ *
+ *   Permission is hereby granted, free of charge, to any person obtaining a copy
+ *   of this software and associated documentation files (the "Software"), to deal
+ *   in the Software without restriction, including without limitation the rights
+ *   to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *   copies of the Software, and to permit persons to whom the Software is
+ *   furnished to do so, subject to the following conditions:
+ *
+ *   The above copyright notice and this permission notice shall be included in
+ *   all copies or substantial portions of the Software.
+ *
+ *   THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ *   EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ *   MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ *   NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ *   BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN
+ *   ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ *   CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *   THE SOFTWARE.
+ *
+ */
+
+package com.owncloud.android.lib.common.http;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Connection pool and dispatcher parameters used for the requests to a server
+ *
+ * @see HttpClient#setConnectionSettings(android.net.Uri, ConnectionSettings)
+ */
+public class ConnectionSettings {
+
+    // Same values OkHttp uses by default
+    public static final int DEFAULT_MAX_IDLE_CONNECTIONS = 5;
+    public static final long DEFAULT_KEEP_ALIVE_DURATION = TimeUnit.MINUTES.toMillis(5);
+    public static final int DEFAULT_MAX_REQUESTS_PER_HOST = 5;
+
+    private final int mMaxIdleConnections;
+    private final long mKeepAliveDuration;
+    private final int mMaxRequestsPerHost;
+
+    /**
+     * @param maxIdleConnections Maximum number of idle connections kept open to the server.
+     * @param keepAliveDuration  Time an idle connection is kept open before being evicted.
+     * @param timeUnit           Unit of 'keepAliveDuration'.
+     * @param maxRequestsPerHost Maximum number of asynchronous requests executed concurrently against the server.
+     * @throws IllegalArgumentException If any of the values is not valid.
+     */
+    public ConnectionSettings(int maxIdleConnections, long keepAliveDuration, TimeUnit timeUnit,
+                              int maxRequestsPerHost) {
+        if (maxIdleConnections < 0) {
+            throw new IllegalArgumentException("maxIdleConnections MUST BE zero or greater");
+        }
+        if (keepAliveDuration <= 0) {
+            throw new IllegalArgumentException("keepAliveDuration MUST BE greater than zero");
+        }
+        if (maxRequestsPerHost < 1) {
+            throw new IllegalArgumentException("maxRequestsPerHost MUST BE one or greater");
+        }
+        mMaxIdleConnections = maxIdleConnections;
+        mKeepAliveDuration = timeUnit.toMillis(keepAliveDuration);
+        mMaxRequestsPerHost = maxRequestsPerHost;
+    }
+
+    public static ConnectionSettings getDefault() {
+        return new ConnectionSettings(
+                DEFAULT_MAX_IDLE_CONNECTIONS,
+                DEFAULT_KEEP_ALIVE_DURATION,
+                TimeUnit.MILLISECONDS,
+                DEFAULT_MAX_REQUESTS_PER_HOST
+        );
+    }
+
+    public int getMaxIdleConnections() {
+        return mMaxIdleConnections;
+    }
+
+    /**
+     * @return Keep alive duration, in milliseconds.
+     */
+    public long getKeepAliveDuration() {
+        return mKeepAliveDuration;
+    }
+
+    public int getMaxRequestsPerHost() {
+        return mMaxRequestsPerHost;
+    }
+}
@@ -0,0 +1,135 @@
+/* ownCloud Android Library is available under MIT license
+ *   Copyright (C) 2019 ownCloud GmbH.
+ *
+ *   Permission is hereby granted, free of charge, to any person obtaining a copy
+ *   of this software and associated documentation files (the "Software"), to deal
+ *   in the Software without restriction, including without limitation the rights
+ *   to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *   copies of the Software, and to permit persons to whom the Software is
+ *   furnished to do so, subject to the following conditions:
+ *
+ *   The above copyright notice and this permission notice shall be included in
+ *   all copies or substantial portions of the Software.
+ *
+ *   THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ *   EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ *   MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ *   NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ *   BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN
+ *   ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ *   CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *   THE SOFTWARE.
+ *
+ */
+
+package com.owncloud.android.lib.common.http;
+
+import okhttp3.Interceptor;
+import okhttp3.OkHttpClient;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Immutable connection parameters of a single call, overriding the ones of the {@link OkHttpClient} that
+ * performs it.
+ *
+ * Timeouts are applied by {@link com.owncloud.android.lib.common.http.interceptors.HttpInterceptor} on the call
+ * itself; redirections and retries are resolved to a client variant cached by {@link HttpClient}. No client is
+ * built per call.
+ */
+public final class HttpCallOptions {
+
+    private static final int NOT_SET = -1;
+
+    public static final HttpCallOptions DEFAULT = new HttpCallOptions(NOT_SET, NOT_SET, NOT_SET, null, null);
+
+    private final int mReadTimeout;
+    private final int mWriteTimeout;
+    private final int mConnectTimeout;
+    private final Boolean mFollowRedirects;
+    private final Boolean mRetryOnConnectionFailure;
+
+    private HttpCallOptions(int readTimeout, int writeTimeout, int connectTimeout, Boolean followRedirects,
+                            Boolean retryOnConnectionFailure) {
+        mReadTimeout = readTimeout;
+        mWriteTimeout = writeTimeout;
+        mConnectTimeout = connectTimeout;
+        mFollowRedirects = followRedirects;
+        mRetryOnConnectionFailure = retryOnConnectionFailure;
+    }
+
+    public HttpCallOptions withReadTimeout(long readTimeout, TimeUnit timeUnit) {
+        return new HttpCallOptions(toMillis(readTimeout, timeUnit), mWriteTimeout, mConnectTimeout,
+                mFollowRedirects, mRetryOnConnectionFailure);
+    }
+
+    public HttpCallOptions withWriteTimeout(long writeTimeout, TimeUnit timeUnit) {
+        return new HttpCallOptions(mReadTimeout, toMillis(writeTimeout, timeUnit), mConnectTimeout,
+                mFollowRedirects, mRetryOnConnectionFailure);
+    }
+
+    public HttpCallOptions withConnectTimeout(long connectTimeout, TimeUnit timeUnit) {
+        return new HttpCallOptions(mReadTimeout, mWriteTimeout, toMillis(connectTimeout, timeUnit),
+                mFollowRedirects, mRetryOnConnectionFailure);
+    }
+
+    public HttpCallOptions withFollowRedirects(boolean followRedirects) {
+        return new HttpCallOptions(mReadTimeout, mWriteTimeout, mConnectTimeout,
+                followRedirects, mRetryOnConnectionFailure);
+    }
+
+    public HttpCallOptions withRetryOnConnectionFailure(boolean retryOnConnectionFailure) {
+        return new HttpCallOptions(mReadTimeout, mWriteTimeout, mConnectTimeout,
+                mFollowRedirects, retryOnConnectionFailure);
+    }
+
+    /**
+     * Applies the timeouts of these options to a call in progress.
+     *
+     * @param chain Chain of an application interceptor, before proceeding with the request
+     * @return Chain to proceed with
+     */
+    public Interceptor.Chain applyTimeoutsTo(Interceptor.Chain chain) {
+        if (mReadTimeout != NOT_SET) {
+            chain = chain.withReadTimeout(mReadTimeout, TimeUnit.MILLISECONDS);
+        }
+        if (mWriteTimeout != NOT_SET) {
+            chain = chain.withWriteTimeout(mWriteTimeout, TimeUnit.MILLISECONDS);
+        }
+        if (mConnectTimeout != NOT_SET) {
+            chain = chain.withConnectTimeout(mConnectTimeout, TimeUnit.MILLISECONDS);
+        }
+        return chain;
+    }
+
+    /**
+     * @param okHttpClient Client that would perform the call without these options
+     * @return Client to perform the call with these options, shared with any other call using the same ones
+     */
+    public OkHttpClient resolveOkHttpClient(OkHttpClient okHttpClient) {
+        boolean followRedirects = getFollowRedirects(okHttpClient);
+        boolean retryOnConnectionFailure = getRetryOnConnectionFailure(okHttpClient);
+        if (followRedirects == okHttpClient.followRedirects() &&
+                retryOnConnectionFailure == okHttpClient.retryOnConnectionFailure()) {
+            return okHttpClient;
+        }
+        return HttpClient.getOkHttpClientVariant(okHttpClient, followRedirects, retryOnConnectionFailure);
+    }
+
+    public boolean getFollowRedirects(OkHttpClient okHttpClient) {
+        return mFollowRedirects != null ? mFollowRedirects : okHttpClient.followRedirects();
+    }
+
+    public boolean getRetryOnConnectionFailure(OkHttpClient okHttpClient) {
+        return mRetryOnConnectionFailure != null
+                ? mRetryOnConnectionFailure
+                : okHttpClient.retryOnConnectionFailure();
+    }
+
+    private static int toMillis(long timeout, TimeUnit timeUnit) {
+        if (timeout < 0) {
+            throw new IllegalArgumentException("Timeout MUST BE zero or greater");
+        }
+        return (int) Math.min(Integer.MAX_VALUE, timeUnit.toMillis(timeout));
+    }
+}
@@ -26,6 +26,7 @@ package com.owncloud.android.lib.common.http;
 
 import android.content.Context;
 
+import android.net.Uri;
 import android.os.Build;
 import com.owncloud.android.lib.common.OwnCloudClientManagerFactory;
 import com.owncloud.android.lib.common.http.interceptors.HttpInterceptor;
@@ -33,8 +34,10 @@ import com.owncloud.android.lib.common.http.interceptors.RequestHeaderIntercepto
 import com.owncloud.android.lib.common.network.AdvancedX509TrustManager;
 import com.owncloud.android.lib.common.network.NetworkUtils;
 import com.owncloud.android.lib.common.utils.Log_OC;
+import okhttp3.ConnectionPool;
 import okhttp3.Cookie;
 import okhttp3.CookieJar;
+import okhttp3.Dispatcher;
 import okhttp3.HttpUrl;
 import okhttp3.OkHttpClient;
 import okhttp3.Protocol;
@@ -43,14 +46,20 @@ import javax.net.ssl.SSLContext;
 import javax.net.ssl.SSLSocketFactory;
 import javax.net.ssl.TrustManager;
 import javax.net.ssl.X509TrustManager;
+import java.io.File;
 import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.HashMap;
-import java.util.HashSet;
+import java.util.Collections;
 import java.util.List;
-import java.util.Set;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Client used to perform network operations
@@ -63,7 +72,33 @@ public class HttpClient {
     private static OkHttpClient sOkHttpClient;
     private static HttpInterceptor sOkHttpInterceptor;
     private static Context sContext;
-    private static HashMap<String, List<Cookie>> sCookieStore = new HashMap<>();
+    private static final String COOKIES_FILE_NAME = "oc_cookies";
+
+    /**
+     * Maximum number of blocking calls run at the same time by {@link #getAsyncExecutor()}; the rest wait in queue
+     */
+    private static final int MAX_ASYNC_BLOCKING_CALLS = 8;
+    private static final long ASYNC_THREAD_KEEP_ALIVE = 30;
+    private static ExecutorService sAsyncExecutor;
+
+    private static final PersistentCookieJar sCookieJar = new PersistentCookieJar();
+    private static boolean sHttp2Enabled = false;
+    private static ConnectionPoolMetrics sConnectionPoolMetrics;
+
+    /**
+     * Clients with their own connection pool and dispatcher for the servers configured with
+     * {@link #setConnectionSettings(Uri, ConnectionSettings)}, indexed by host and port
+     */
+    private static final ConcurrentHashMap<String, OkHttpClient> sServerOkHttpClients = new ConcurrentHashMap<>();
+    private static final ConcurrentHashMap<String, ConnectionPoolMetrics> sServerConnectionPoolMetrics =
+            new ConcurrentHashMap<>();
+
+    /**
+     * Variants of the clients above with other redirection and retry policies, requested through
+     * {@link HttpCallOptions}. Weak keys let the variants go away with the client they come from.
+     */
+    private static final Map<OkHttpClient, OkHttpClient[]> sOkHttpClientVariants =
+            Collections.synchronizedMap(new WeakHashMap<>());
 
     public static OkHttpClient getOkHttpClient() {
         if (sOkHttpClient == null) {
@@ -98,39 +133,28 @@ public class HttpClient {
                     sslSocketFactory = sslContext.getSocketFactory();
                 }
 
-                // Automatic cookie handling, NOT PERSISTENT
-                CookieJar cookieJar = new CookieJar() {
-                    @Override
-                    public void saveFromResponse(HttpUrl url, List<Cookie> cookies) {
-                        // Avoid duplicated cookies
-                        Set<Cookie> nonDuplicatedCookiesSet = new HashSet<>();
-                        nonDuplicatedCookiesSet.addAll(cookies);
-                        List<Cookie> nonDuplicatedCookiesList = new ArrayList<>();
-                        nonDuplicatedCookiesList.addAll(nonDuplicatedCookiesSet);
-
-                        sCookieStore.put(url.host(), nonDuplicatedCookiesList);
-                    }
-
-                    @Override
-                    public List<Cookie> loadForRequest(HttpUrl url) {
-                        List<Cookie> cookies = sCookieStore.get(url.host());
-                        return cookies != null ? cookies : new ArrayList<>();
-                    }
-                };
+                ConnectionPool connectionPool = new ConnectionPool(
+                        ConnectionSettings.DEFAULT_MAX_IDLE_CONNECTIONS,
+                        ConnectionSettings.DEFAULT_KEEP_ALIVE_DURATION,
+                        TimeUnit.MILLISECONDS);
+                final ConnectionPoolMetrics connectionPoolMetrics = new ConnectionPoolMetrics(connectionPool);
 
                 OkHttpClient.Builder clientBuilder = new OkHttpClient.Builder()
                         .addInterceptor(getOkHttpInterceptor())
-                        .protocols(Arrays.asList(Protocol.HTTP_1_1))
+                        .connectionPool(connectionPool)
+                        .eventListenerFactory(call -> connectionPoolMetrics)
+                        .protocols(getProtocols())
                         .readTimeout(HttpConstants.DEFAULT_DATA_TIMEOUT, TimeUnit.MILLISECONDS)
                         .writeTimeout(HttpConstants.DEFAULT_DATA_TIMEOUT, TimeUnit.MILLISECONDS)
                         .connectTimeout(HttpConstants.DEFAULT_CONNECTION_TIMEOUT, TimeUnit.MILLISECONDS)
                         .followRedirects(false)
                         .sslSocketFactory(sslSocketFactory, trustManager)
                         .hostnameVerifier((asdf, usdf) -> true)
-                        .cookieJar(cookieJar);
+                        .cookieJar(sCookieJar);
                 // TODO: Not verifying the hostname against certificate. ask owncloud security human if this is ok.
                 //.hostnameVerifier(new BrowserCompatHostnameVerifier());
                 sOkHttpClient = clientBuilder.build();
+                sConnectionPoolMetrics = connectionPoolMetrics;
 
             } catch (Exception e) {
                 Log_OC.e(TAG, "Could not setup SSL system.", e);
@@ -139,6 +163,167 @@ public class HttpClient {
         return sOkHttpClient;
     }
 
+    /**
+     * Returns the client to use for requests to the given URL: the one created for its server with
+     * {@link #setConnectionSettings(Uri, ConnectionSettings)}, or the shared one if the server was not configured.
+     *
+     * @param url URL to reach
+     * @return Client to perform the request
+     */
+    public static OkHttpClient getOkHttpClient(HttpUrl url) {
+        if (url != null && !sServerOkHttpClients.isEmpty()) {
+            OkHttpClient serverOkHttpClient = sServerOkHttpClients.get(getServerKey(url));
+            if (serverOkHttpClient != null) {
+                return serverOkHttpClient;
+            }
+        }
+        return getOkHttpClient();
+    }
+
+    /**
+     * Returns a client sharing everything with the given one, but the redirection and retry policies. Variants
+     * are built once and reused for every call requesting them.
+     */
+    static OkHttpClient getOkHttpClientVariant(OkHttpClient okHttpClient, boolean followRedirects,
+                                               boolean retryOnConnectionFailure) {
+        int variantIndex = (followRedirects ? 2 : 0) + (retryOnConnectionFailure ? 1 : 0);
+        synchronized (sOkHttpClientVariants) {
+            OkHttpClient[] variants = sOkHttpClientVariants.get(okHttpClient);
+            if (variants == null) {
+                variants = new OkHttpClient[4];
+                sOkHttpClientVariants.put(okHttpClient, variants);
+            }
+            if (variants[variantIndex] == null) {
+                variants[variantIndex] = okHttpClient.newBuilder()
+                        .followRedirects(followRedirects)
+                        .retryOnConnectionFailure(retryOnConnectionFailure)
+                        .build();
+            }
+            return variants[variantIndex];
+        }
+    }
+
+    /**
+     * Sets a dedicated connection pool and dispatcher for the requests to the server in the given base URI.
+     * Replaces any previous settings for the same server; its idle connections are closed.
+     *
+     * Only affects the methods created from now on.
+     *
+     * @param baseUri            Base URI of the ownCloud server
+     * @param connectionSettings Settings of the connection pool and dispatcher
+     */
+    public static void setConnectionSettings(Uri baseUri, ConnectionSettings connectionSettings) {
+        String serverKey = getServerKey(parseBaseUri(baseUri));
+
+        Dispatcher dispatcher = new Dispatcher();
+        dispatcher.setMaxRequestsPerHost(connectionSettings.getMaxRequestsPerHost());
+
+        ConnectionPool connectionPool = new ConnectionPool(
+                connectionSettings.getMaxIdleConnections(),
+                connectionSettings.getKeepAliveDuration(),
+                TimeUnit.MILLISECONDS);
+        final ConnectionPoolMetrics connectionPoolMetrics = new ConnectionPoolMetrics(connectionPool);
+
+        OkHttpClient serverOkHttpClient = getOkHttpClient().newBuilder()
+                .dispatcher(dispatcher)
+                .connectionPool(connectionPool)
+                .eventListenerFactory(call -> connectionPoolMetrics)
+                .build();
+
+        sServerConnectionPoolMetrics.put(serverKey, connectionPoolMetrics);
+        OkHttpClient previousOkHttpClient = sServerOkHttpClients.put(serverKey, serverOkHttpClient);
+        if (previousOkHttpClient != null) {
+            previousOkHttpClient.connectionPool().evictAll();
+        }
+    }
+
+    /**
+     * Removes the settings given for a server with {@link #setConnectionSettings(Uri, ConnectionSettings)}; its
+     * requests will use the shared connection pool from now on.
+     *
+     * @param baseUri Base URI of the ownCloud server
+     */
+    public static void clearConnectionSettings(Uri baseUri) {
+        String serverKey = getServerKey(parseBaseUri(baseUri));
+        sServerConnectionPoolMetrics.remove(serverKey);
+        OkHttpClient previousOkHttpClient = sServerOkHttpClients.remove(serverKey);
+        if (previousOkHttpClient != null) {
+            previousOkHttpClient.connectionPool().evictAll();
+        }
+    }
+
+    /**
+     * Returns the statistics of the connection pool used for the server in the given base URI. Servers without
+     * specific {@link ConnectionSettings} share the statistics of the common pool.
+     *
+     * @param baseUri Base URI of the ownCloud server
+     * @return Statistics of the connection pool, or NULL if the HTTP client could not be created
+     */
+    public static ConnectionPoolMetrics getConnectionPoolMetrics(Uri baseUri) {
+        ConnectionPoolMetrics serverConnectionPoolMetrics =
+                sServerConnectionPoolMetrics.get(getServerKey(parseBaseUri(baseUri)));
+        if (serverConnectionPoolMetrics != null) {
+            return serverConnectionPoolMetrics;
+        }
+        getOkHttpClient();
+        return sConnectionPoolMetrics;
+    }
+
+    private static HttpUrl parseBaseUri(Uri baseUri) {
+        HttpUrl baseUrl = (baseUri != null) ? HttpUrl.parse(baseUri.toString()) : null;
+        if (baseUrl == null) {
+            throw new IllegalArgumentException("Invalid base URI: " + baseUri);
+        }
+        return baseUrl;
+    }
+
+    private static String getServerKey(HttpUrl url) {
+        return url.host() + ":" + url.port();
+    }
+
+    /**
+     * HTTP/2 is negotiated with the server via ALPN during the TLS handshake; plain HTTP connections, servers
+     * and devices not supporting it keep using HTTP/1.1
+     */
+    private static List<Protocol> getProtocols() {
+        return sHttp2Enabled
+                ? Arrays.asList(Protocol.HTTP_2, Protocol.HTTP_1_1)
+                : Arrays.asList(Protocol.HTTP_1_1);
+    }
+
+    public static boolean isHttp2Enabled() {
+        return sHttp2Enabled;
+    }
+
+    /**
+     * Enables or disables HTTP/2, so concurrent requests to the same server can be multiplexed over a single
+     * connection. Disabled by default.
+     *
+     * Only affects the methods created from now on.
+     *
+     * @param http2Enabled 'true' to offer HTTP/2 to the servers, 'false' to use only HTTP/1.1
+     */
+    public static void setHttp2Enabled(boolean http2Enabled) {
+        if (sHttp2Enabled == http2Enabled) {
+            return;
+        }
+        sHttp2Enabled = http2Enabled;
+        if (sOkHttpClient != null) {
+            // Keep sharing connection pool, dispatcher and interceptors with the methods already created
+            sOkHttpClient = sOkHttpClient.newBuilder()
+                    .protocols(getProtocols())
+                    .build();
+        }
+        for (String serverKey : sServerOkHttpClients.keySet()) {
+            OkHttpClient serverOkHttpClient = sServerOkHttpClients.get(serverKey);
+            if (serverOkHttpClient != null) {
+                sServerOkHttpClients.replace(serverKey, serverOkHttpClient, serverOkHttpClient.newBuilder()
+                        .protocols(getProtocols())
+                        .build());
+            }
+        }
+    }
+
     private static HttpInterceptor getOkHttpInterceptor() {
         if (sOkHttpInterceptor == null) {
             sOkHttpInterceptor = new HttpInterceptor();
@@ -166,12 +351,40 @@ public class HttpClient {
         getOkHttpInterceptor().deleteRequestHeaderInterceptor(headerName);
     }
 
+    /**
+     * Returns the shared executor for calls that can only be performed by blocking a thread, such as the WebDAV
+     * ones. It runs a bounded number of threads and queues the rest of calls, so many asynchronous requests do not
+     * need as many threads.
+     *
+     * @return Shared executor for asynchronous blocking calls
+     */
+    public static synchronized ExecutorService getAsyncExecutor() {
+        if (sAsyncExecutor == null) {
+            final AtomicInteger threadCounter = new AtomicInteger();
+            ThreadPoolExecutor asyncExecutor = new ThreadPoolExecutor(
+                    MAX_ASYNC_BLOCKING_CALLS,
+                    MAX_ASYNC_BLOCKING_CALLS,
+                    ASYNC_THREAD_KEEP_ALIVE,
+                    TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<>(),
+                    runnable -> new Thread(runnable,
+                            HttpClient.class.getSimpleName() + " async #" + threadCounter.incrementAndGet())
+            );
+            asyncExecutor.allowCoreThreadTimeOut(true);
+            sAsyncExecutor = asyncExecutor;
+        }
+        return sAsyncExecutor;
+    }
+
     public Context getContext() {
         return sContext;
     }
 
     public static void setContext(Context context) {
         sContext = context;
+        if (context != null) {
+            sCookieJar.setPersistenceFile(new File(context.getFilesDir(), COOKIES_FILE_NAME));
+        }
     }
 
     public void disableAutomaticCookiesHandling() {
@@ -191,10 +404,36 @@ public class HttpClient {
     }
 
     public List<Cookie> getCookiesFromUrl(HttpUrl httpUrl) {
-        return sCookieStore.get(httpUrl.host());
+        return sCookieJar.getCookies(httpUrl.host());
     }
 
     public void clearCookies() {
-        sCookieStore.clear();
+        sCookieJar.clear();
+    }
+
+    /**
+     * Removes the cookies stored for a host, shared by all the clients connected to it.
+     *
+     * @param host Host name
+     */
+    public void clearCookies(String host) {
+        sCookieJar.clear(host);
+    }
+
+    /**
+     * Replaces the cookies stored for the host of the given URL, shared by all the clients connected to it.
+     *
+     * @param httpUrl URL of the host
+     * @param cookies Cookies to keep for the host; empty to remove all of them
+     */
+    protected void replaceCookies(HttpUrl httpUrl, List<Cookie> cookies) {
+        sCookieJar.replace(httpUrl.host(), cookies);
+    }
+
+    /**
+     * Writes the cookies received so far to disk right now, instead of waiting for the background write.
+     */
+    public static void flushCookies() {
+        sCookieJar.flush();
     }
 }
\ No newline at end of file
@@ -47,6 +47,7 @@ public class HttpConstants {
     public static final String OC_X_REQUEST_ID = "X-Request-ID";
     public static final String LOCATION_HEADER = "Location";
     public static final String LOCATION_HEADER_LOWER = "location";
+    public static final String RETRY_AFTER_HEADER = "Retry-After";
     public static final String CONTENT_TYPE_URLENCODED_UTF8 = "application/x-www-form-urlencoded; charset=utf-8";
     public static final String ACCEPT_ENCODING_HEADER = "Accept-Encoding";
     public static final String ACCEPT_ENCODING_IDENTITY = "identity";
@@ -157,6 +158,8 @@ public class HttpConstants {
     public static final int HTTP_LOCKED = 423;
     // 424 Failed Dependency (WebDAV - RFC 2518)
     public static final int HTTP_FAILED_DEPENDENCY = 424;
+    // 429 Too Many Requests (RFC 6585)
+    public static final int HTTP_TOO_MANY_REQUESTS = 429;
 
     /**
      * 5xx Client Error
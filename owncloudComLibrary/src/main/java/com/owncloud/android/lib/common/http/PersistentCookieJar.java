@@ -0,0 +1,328 @@
+/* ownCloud Android Library is available under MIT license
+ *   Copyright (C) 2019 ownCloud GmbH.
+ *
+ *   Permission is hereby granted, free of charge, to any person obtaining a copy
+ *   of this software and associated documentation files (the "Software"), to deal
+ *   in the Software without restriction, including without limitation the rights
+ *   to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *   copies of the Software, and to permit persons to whom the Software is
+ *   furnished to do so, subject to the following conditions:
+ *
+ *   The above copyright notice and this permission notice shall be included in
+ *   all copies or substantial portions of the Software.
+ *
+ *   THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ *   EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ *   MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ *   NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ *   BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN
+ *   ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ *   CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *   THE SOFTWARE.
+ *
+ */
+
+package com.owncloud.android.lib.common.http;
+
+import com.owncloud.android.lib.common.utils.Log_OC;
+import okhttp3.Cookie;
+import okhttp3.CookieJar;
+import okhttp3.HttpUrl;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Thread safe cookie jar, striped by host, persisted to disk in background.
+ *
+ * Cookies are replaced by name, domain and path, and expired cookies are never sent nor persisted. Session cookies
+ * are persisted too, so sessions survive restarts of the app.
+ */
+public class PersistentCookieJar implements CookieJar {
+
+    private static final String TAG = PersistentCookieJar.class.getSimpleName();
+
+    private static final String FIELD_SEPARATOR = "\t";
+    private static final String CHARSET = "UTF-8";
+
+    /**
+     * Time to wait after a change before writing the cookies to disk, so bursts of responses cause a single write
+     */
+    private static final long WRITE_DELAY_MILLIS = 1000;
+
+    private final ConcurrentHashMap<String, HostCookies> mCookiesByHost = new ConcurrentHashMap<>();
+
+    private final AtomicBoolean mWriteScheduled = new AtomicBoolean(false);
+    private ScheduledExecutorService mWriteExecutor;
+
+    private volatile File mPersistenceFile;
+    private volatile boolean mLoaded = true;
+
+    /**
+     * Sets the file where cookies are persisted; the cookies stored there are loaded before handling any other
+     * cookie.
+     *
+     * @param persistenceFile File to persist the cookies, or NULL to keep them only in memory
+     */
+    public synchronized void setPersistenceFile(File persistenceFile) {
+        if (persistenceFile == null ? mPersistenceFile == null : persistenceFile.equals(mPersistenceFile)) {
+            return;
+        }
+        mPersistenceFile = persistenceFile;
+        mLoaded = (persistenceFile == null);
+    }
+
+    @Override
+    public void saveFromResponse(HttpUrl url, List<Cookie> cookies) {
+        if (cookies.isEmpty()) {
+            return;
+        }
+        ensureLoaded();
+        getHostCookies(url.host()).save(cookies, System.currentTimeMillis());
+        scheduleWrite();
+    }
+
+    @Override
+    public List<Cookie> loadForRequest(HttpUrl url) {
+        ensureLoaded();
+        HostCookies hostCookies = mCookiesByHost.get(url.host());
+        return hostCookies != null
+                ? hostCookies.load(url, System.currentTimeMillis())
+                : Collections.<Cookie>emptyList();
+    }
+
+    /**
+     * @param host Host name
+     * @return Cookies stored for the given host and not expired, or NULL if none
+     */
+    public List<Cookie> getCookies(String host) {
+        ensureLoaded();
+        HostCookies hostCookies = mCookiesByHost.get(host);
+        List<Cookie> cookies = (hostCookies != null) ? hostCookies.getAll(System.currentTimeMillis()) : null;
+        return (cookies == null || cookies.isEmpty()) ? null : cookies;
+    }
+
+    /**
+     * Replaces all the cookies stored for a host with the given ones.
+     *
+     * @param host    Host name
+     * @param cookies Cookies to keep for the host; empty to remove all of them
+     */
+    public void replace(String host, List<Cookie> cookies) {
+        ensureLoaded();
+        if (cookies.isEmpty()) {
+            mCookiesByHost.remove(host);
+        } else {
+            HostCookies hostCookies = new HostCookies();
+            hostCookies.save(cookies, System.currentTimeMillis());
+            mCookiesByHost.put(host, hostCookies);
+        }
+        scheduleWrite();
+    }
+
+    public void clear() {
+        mCookiesByHost.clear();
+        mLoaded = true;     // cookies in disk must not come back
+        scheduleWrite();
+    }
+
+    public void clear(String host) {
+        ensureLoaded();
+        mCookiesByHost.remove(host);
+        scheduleWrite();
+    }
+
+    /**
+     * Writes the cookies to disk right now, in the calling thread.
+     */
+    public void flush() {
+        mWriteScheduled.set(false);
+        write();
+    }
+
+    private HostCookies getHostCookies(String host) {
+        HostCookies hostCookies = mCookiesByHost.get(host);
+        if (hostCookies == null) {
+            HostCookies newHostCookies = new HostCookies();
+            hostCookies = mCookiesByHost.putIfAbsent(host, newHostCookies);
+            if (hostCookies == null) {
+                hostCookies = newHostCookies;
+            }
+        }
+        return hostCookies;
+    }
+
+    private void ensureLoaded() {
+        if (mLoaded) {
+            return;
+        }
+        synchronized (this) {
+            if (!mLoaded) {
+                read(mPersistenceFile);
+                mLoaded = true;
+            }
+        }
+    }
+
+    private void read(File persistenceFile) {
+        if (persistenceFile == null || !persistenceFile.exists()) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(new FileInputStream(persistenceFile), CHARSET))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                int separatorPos = line.indexOf(FIELD_SEPARATOR);
+                if (separatorPos <= 0) {
+                    continue;
+                }
+                String host = line.substring(0, separatorPos);
+                HttpUrl hostUrl = HttpUrl.parse("https://" + host + "/");
+                Cookie cookie = (hostUrl != null)
+                        ? Cookie.parse(hostUrl, line.substring(separatorPos + 1))
+                        : null;
+                if (cookie != null) {
+                    // Cookies received later in this run take precedence over the persisted ones
+                    getHostCookies(host).restore(cookie, now);
+                }
+            }
+        } catch (IOException e) {
+            Log_OC.e(TAG, "Could not read persisted cookies", e);
+        }
+    }
+
+    private void scheduleWrite() {
+        if (mPersistenceFile == null || !mWriteScheduled.compareAndSet(false, true)) {
+            return;
+        }
+        getWriteExecutor().schedule(() -> {
+            if (mWriteScheduled.compareAndSet(true, false)) {
+                write();
+            }
+        }, WRITE_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    private synchronized ScheduledExecutorService getWriteExecutor() {
+        if (mWriteExecutor == null) {
+            mWriteExecutor = new ScheduledThreadPoolExecutor(1, runnable -> {
+                Thread thread = new Thread(runnable, TAG);
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return mWriteExecutor;
+    }
+
+    private synchronized void write() {
+        File persistenceFile = mPersistenceFile;
+        if (persistenceFile == null) {
+            return;
+        }
+        ensureLoaded();
+        long now = System.currentTimeMillis();
+        File tmpFile = new File(persistenceFile.getPath() + ".tmp");
+        try {
+            try (BufferedWriter writer = new BufferedWriter(
+                    new OutputStreamWriter(new FileOutputStream(tmpFile), CHARSET))) {
+                for (Map.Entry<String, HostCookies> entry : mCookiesByHost.entrySet()) {
+                    for (Cookie cookie : entry.getValue().getAll(now)) {
+                        writer.write(entry.getKey());
+                        writer.write(FIELD_SEPARATOR);
+                        writer.write(cookie.toString());
+                        writer.newLine();
+                    }
+                }
+            }
+            if (!tmpFile.renameTo(persistenceFile)) {
+                throw new IOException("Could not rename " + tmpFile + " to " + persistenceFile);
+            }
+        } catch (IOException e) {
+            Log_OC.e(TAG, "Could not persist cookies", e);
+            tmpFile.delete();
+        }
+    }
+
+    /**
+     * Cookies of a single host. Readers get an immutable snapshot; writers replace it.
+     */
+    private static class HostCookies {
+
+        private volatile List<Cookie> mCookies = Collections.emptyList();
+
+        synchronized void save(List<Cookie> newCookies, long now) {
+            List<Cookie> cookies = new ArrayList<>(mCookies.size() + newCookies.size());
+            for (Cookie cookie : mCookies) {
+                if (cookie.expiresAt() > now && !isReplacedBy(cookie, newCookies)) {
+                    cookies.add(cookie);
+                }
+            }
+            for (Cookie newCookie : newCookies) {
+                // An expired cookie in a response only removes the previous one
+                if (newCookie.expiresAt() > now && !isReplacedBy(newCookie, cookies)) {
+                    cookies.add(newCookie);
+                }
+            }
+            mCookies = Collections.unmodifiableList(cookies);
+        }
+
+        synchronized void restore(Cookie restoredCookie, long now) {
+            if (restoredCookie.expiresAt() > now && !isReplacedBy(restoredCookie, mCookies)) {
+                List<Cookie> cookies = new ArrayList<>(mCookies);
+                cookies.add(restoredCookie);
+                mCookies = Collections.unmodifiableList(cookies);
+            }
+        }
+
+        List<Cookie> load(HttpUrl url, long now) {
+            List<Cookie> cookies = mCookies;
+            List<Cookie> matchingCookies = null;
+            for (Cookie cookie : cookies) {
+                if (cookie.expiresAt() > now && cookie.matches(url)) {
+                    if (matchingCookies == null) {
+                        matchingCookies = new ArrayList<>(cookies.size());
+                    }
+                    matchingCookies.add(cookie);
+                }
+            }
+            return matchingCookies != null ? matchingCookies : Collections.<Cookie>emptyList();
+        }
+
+        List<Cookie> getAll(long now) {
+            List<Cookie> cookies = mCookies;
+            List<Cookie> validCookies = new ArrayList<>(cookies.size());
+            for (Cookie cookie : cookies) {
+                if (cookie.expiresAt() > now) {
+                    validCookies.add(cookie);
+                }
+            }
+            return validCookies;
+        }
+
+        private static boolean isReplacedBy(Cookie cookie, List<Cookie> otherCookies) {
+            for (Cookie otherCookie : otherCookies) {
+                if (otherCookie.name().equals(cookie.name()) &&
+                        otherCookie.domain().equals(cookie.domain()) &&
+                        otherCookie.path().equals(cookie.path())) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,96 @@
+/* ownCloud Android Library is available under MIT license
+ *   Copyright (C) 2019 ownCloud GmbH.
+ *
+ *   Permission is hereby granted, free of charge, to any person obtaining a copy
+ *   of this software and associated documentation files (the "Software"), to deal
+ *   in the Software without restriction, including without limitation the rights
+ *   to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *   copies of the Software, and to permit persons to whom the Software is
+ *   furnished to do so, subject to the following conditions:
+ *
+ *   The above copyright notice and this permission notice shall be included in
+ *   all copies or substantial portions of the Software.
+ *
+ *   THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ *   EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ *   MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ *   NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ *   BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN
+ *   ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ *   CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *   THE SOFTWARE.
+ *
+ */
+
+package com.owncloud.android.lib.common.http;
+
+/**
+ * Limits the retries done by a client when most of its requests are failing, so a server in trouble or a dead
+ * network are not hammered with repeated requests.
+ *
+ * Works as a bucket of tokens: every failure eligible for a retry takes one token, every request completed takes
+ * back a fraction of one. Retries are allowed while the bucket is more than half full.
+ */
+public class RetryBudget {
+
+    public static final int DEFAULT_MAX_TOKENS = 10;
+    public static final double DEFAULT_TOKEN_RATIO = 0.1;
+
+    private final double mMaxTokens;
+    private final double mTokenRatio;
+
+    // guarded by 'this'
+    private double mTokens;
+    private long mRetriesAllowed = 0;
+    private long mRetriesDenied = 0;
+
+    public RetryBudget() {
+        this(DEFAULT_MAX_TOKENS, DEFAULT_TOKEN_RATIO);
+    }
+
+    /**
+     * @param maxTokens  Capacity of the bucket; half of it is the number of consecutive failures that can be
+     *                   retried.
+     * @param tokenRatio Fraction of a token recovered by every request completed.
+     * @throws IllegalArgumentException If any parameter is not greater than 0
+     */
+    public RetryBudget(int maxTokens, double tokenRatio) {
+        if (maxTokens <= 0 || tokenRatio <= 0) {
+            throw new IllegalArgumentException("maxTokens and tokenRatio MUST BE greater than zero");
+        }
+        mMaxTokens = maxTokens;
+        mTokenRatio = tokenRatio;
+        mTokens = maxTokens;
+    }
+
+    /**
+     * Records a request completed, either successfully or with an error that would not change by retrying it.
+     */
+    public synchronized void recordCompletion() {
+        mTokens = Math.min(mMaxTokens, mTokens + mTokenRatio);
+    }
+
+    /**
+     * Records a failure eligible for a retry.
+     *
+     * @return 'true' if the budget allows retrying it.
+     */
+    public synchronized boolean recordFailure() {
+        mTokens = Math.max(0, mTokens - 1);
+        boolean allowed = mTokens > mMaxTokens / 2;
+        if (allowed) {
+            mRetriesAllowed++;
+        } else {
+            mRetriesDenied++;
+        }
+        return allowed;
+    }
+
+    public synchronized long getRetriesAllowed() {
+        return mRetriesAllowed;
+    }
+
+    public synchronized long getRetriesDenied() {
+        return mRetriesDenied;
+    }
+}
@@ -0,0 +1,238 @@
+/* ownCloud Android Library is available under MIT license
+ *   Copyright (C) 2019 ownCloud GmbH.
+ *
+ *   Permission is hereby granted, free of charge, to any person obtaining a copy
+ *   of this software and associated documentation files (the "Software"), to deal
+ *   in the Software without restriction, including without limitation the rights
+ *   to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *   copies of the Software, and to permit persons to whom the Software is
+ *   furnished to do so, subject to the following conditions:
+ *
+ *   The above copyright notice and this permission notice shall be included in
+ *   all copies or substantial portions of the Software.
+ *
+ *   THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ *   EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ *   MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ *   NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ *   BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN
+ *   ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ *   CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *   THE SOFTWARE.
+ *
+ */
+
+package com.owncloud.android.lib.common.http;
+
+import com.owncloud.android.lib.common.network.WebdavUtils;
+
+import javax.net.ssl.SSLPeerUnverifiedException;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.MalformedURLException;
+import java.net.ProtocolException;
+import java.net.SocketTimeoutException;
+import java.security.cert.CertificateException;
+import java.util.Date;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Immutable policy deciding when and after how long a failed request is sent again.
+ *
+ * Requests are retried when they fail with a transient network error, or with a status meaning the server is
+ * temporarily unable to process them (429, 502, 503, 504). The delay grows exponentially from one retry to the next
+ * and is randomized to spread the retries of many clients; a 'Retry-After' header in the response takes
+ * precedence over it.
+ *
+ * Only requests that can be safely repeated should be retried; see
+ * {@link com.owncloud.android.lib.common.http.methods.HttpBaseMethod#isIdempotent()}.
+ */
+public final class RetryPolicy {
+
+    public static final int DEFAULT_MAX_RETRIES = 3;
+    public static final long DEFAULT_INITIAL_BACKOFF = 500;         // in milliseconds
+    public static final long DEFAULT_MAX_BACKOFF = 30000;           // in milliseconds
+    public static final double DEFAULT_BACKOFF_MULTIPLIER = 2;
+    public static final double DEFAULT_JITTER = 0.5;
+    public static final long DEFAULT_MAX_RETRY_AFTER = 60000;       // in milliseconds
+
+    public static final RetryPolicy NONE = new RetryPolicy(0, DEFAULT_INITIAL_BACKOFF, DEFAULT_MAX_BACKOFF,
+            DEFAULT_BACKOFF_MULTIPLIER, DEFAULT_JITTER, DEFAULT_MAX_RETRY_AFTER);
+
+    public static final RetryPolicy DEFAULT = NONE.withMaxRetries(DEFAULT_MAX_RETRIES);
+
+    private static final Random sRandom = new Random();
+
+    private final int mMaxRetries;
+    private final long mInitialBackoff;
+    private final long mMaxBackoff;
+    private final double mBackoffMultiplier;
+    private final double mJitter;
+    private final long mMaxRetryAfter;
+
+    private RetryPolicy(int maxRetries, long initialBackoff, long maxBackoff, double backoffMultiplier,
+                        double jitter, long maxRetryAfter) {
+        mMaxRetries = maxRetries;
+        mInitialBackoff = initialBackoff;
+        mMaxBackoff = maxBackoff;
+        mBackoffMultiplier = backoffMultiplier;
+        mJitter = jitter;
+        mMaxRetryAfter = maxRetryAfter;
+    }
+
+    /**
+     * @param maxRetries Maximum number of times a request is sent again after the first attempt.
+     * @throws IllegalArgumentException If 'maxRetries' is < 0
+     */
+    public RetryPolicy withMaxRetries(int maxRetries) {
+        if (maxRetries < 0) {
+            throw new IllegalArgumentException("maxRetries MUST BE zero or greater");
+        }
+        return new RetryPolicy(maxRetries, mInitialBackoff, mMaxBackoff, mBackoffMultiplier, mJitter,
+                mMaxRetryAfter);
+    }
+
+    /**
+     * @param initialBackoff Delay before the first retry.
+     * @param maxBackoff     Maximum delay before any retry.
+     * @param timeUnit       Unit of both delays.
+     * @throws IllegalArgumentException If any delay is < 0, or 'maxBackoff' is lower than 'initialBackoff'
+     */
+    public RetryPolicy withBackoff(long initialBackoff, long maxBackoff, TimeUnit timeUnit) {
+        if (initialBackoff < 0 || maxBackoff < initialBackoff) {
+            throw new IllegalArgumentException("Backoff delays MUST BE zero or greater, and maximum not lower " +
+                    "than initial");
+        }
+        return new RetryPolicy(mMaxRetries, timeUnit.toMillis(initialBackoff), timeUnit.toMillis(maxBackoff),
+                mBackoffMultiplier, mJitter, mMaxRetryAfter);
+    }
+
+    /**
+     * @param backoffMultiplier Factor the delay is multiplied by from one retry to the next.
+     * @throws IllegalArgumentException If 'backoffMultiplier' is < 1
+     */
+    public RetryPolicy withBackoffMultiplier(double backoffMultiplier) {
+        if (backoffMultiplier < 1) {
+            throw new IllegalArgumentException("backoffMultiplier MUST BE one or greater");
+        }
+        return new RetryPolicy(mMaxRetries, mInitialBackoff, mMaxBackoff, backoffMultiplier, mJitter,
+                mMaxRetryAfter);
+    }
+
+    /**
+     * @param jitter Fraction of every delay that is randomized; 0 for no randomization, 1 for a delay anywhere
+     *               between 0 and the computed one.
+     * @throws IllegalArgumentException If 'jitter' is not in [0, 1]
+     */
+    public RetryPolicy withJitter(double jitter) {
+        if (jitter < 0 || jitter > 1) {
+            throw new IllegalArgumentException("jitter MUST BE between 0 and 1");
+        }
+        return new RetryPolicy(mMaxRetries, mInitialBackoff, mMaxBackoff, mBackoffMultiplier, jitter,
+                mMaxRetryAfter);
+    }
+
+    /**
+     * @param maxRetryAfter Maximum delay accepted from a 'Retry-After' header; the request is not retried if the
+     *                      server asks for a longer one.
+     * @param timeUnit      Unit of the delay.
+     * @throws IllegalArgumentException If 'maxRetryAfter' is < 0
+     */
+    public RetryPolicy withMaxRetryAfter(long maxRetryAfter, TimeUnit timeUnit) {
+        if (maxRetryAfter < 0) {
+            throw new IllegalArgumentException("maxRetryAfter MUST BE zero or greater");
+        }
+        return new RetryPolicy(mMaxRetries, mInitialBackoff, mMaxBackoff, mBackoffMultiplier, mJitter,
+                timeUnit.toMillis(maxRetryAfter));
+    }
+
+    public int getMaxRetries() {
+        return mMaxRetries;
+    }
+
+    public long getMaxRetryAfter() {
+        return mMaxRetryAfter;
+    }
+
+    /**
+     * @param retry Number of the retry about to be done, starting at 1.
+     * @return Randomized delay, in milliseconds, to wait before the retry.
+     */
+    public long getBackoffDelay(int retry) {
+        double delay = mInitialBackoff * Math.pow(mBackoffMultiplier, Math.max(0, retry - 1));
+        delay = Math.min(delay, mMaxBackoff);
+        double randomFactor;
+        synchronized (sRandom) {
+            randomFactor = sRandom.nextDouble();
+        }
+        return (long) (delay * (1 - mJitter * randomFactor));
+    }
+
+    /**
+     * @param status HTTP status code of a response.
+     * @return 'true' if the status means the server could process the same request later.
+     */
+    public boolean isRetryableStatus(int status) {
+        return status == HttpConstants.HTTP_TOO_MANY_REQUESTS ||
+                status == HttpConstants.HTTP_BAD_GATEWAY ||
+                status == HttpConstants.HTTP_SERVICE_UNAVAILABLE ||
+                status == HttpConstants.HTTP_GATEWAY_TIMEOUT;
+    }
+
+    /**
+     * @param exception Exception thrown while executing a request.
+     * @return 'true' if the exception is a network error that may not happen again, e.g. a connection reset or
+     * a timeout; 'false' for cancellations, malformed requests and certificate errors.
+     */
+    public boolean isRetryableException(Exception exception) {
+        if (!(exception instanceof IOException) ||
+                exception instanceof MalformedURLException ||
+                exception instanceof ProtocolException ||
+                exception instanceof SSLPeerUnverifiedException) {
+            return false;
+        }
+        if (exception instanceof InterruptedIOException && !(exception instanceof SocketTimeoutException)) {
+            // cancelled call
+            return false;
+        }
+        for (Throwable cause = exception.getCause(); cause != null; cause = cause.getCause()) {
+            if (cause instanceof CertificateException) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Parses the value of a 'Retry-After' header, either a number of seconds or an HTTP date.
+     *
+     * @param retryAfter Value of the header; may be NULL.
+     * @return Delay requested by the server in milliseconds, or -1 if there is none or cannot be parsed.
+     */
+    public static long parseRetryAfter(String retryAfter) {
+        if (retryAfter == null || retryAfter.trim().isEmpty()) {
+            return -1;
+        }
+        String value = retryAfter.trim();
+        try {
+            return Math.max(0, TimeUnit.SECONDS.toMillis(Long.parseLong(value)));
+        } catch (NumberFormatException e) {
+            // not a number of seconds, try as a date
+        }
+        Date date = WebdavUtils.parseResponseDate(value);
+        return (date != null) ? Math.max(0, date.getTime() - System.currentTimeMillis()) : -1;
+    }
+
+    @Override
+    public String toString() {
+        return "RetryPolicy{" +
+                "maxRetries=" + mMaxRetries +
+                ", initialBackoff=" + mInitialBackoff +
+                ", maxBackoff=" + mMaxBackoff +
+                ", backoffMultiplier=" + mBackoffMultiplier +
+                ", jitter=" + mJitter +
+                ", maxRetryAfter=" + mMaxRetryAfter +
+                '}';
+    }
+}
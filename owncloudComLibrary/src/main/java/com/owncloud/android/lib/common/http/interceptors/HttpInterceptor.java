@@ -24,32 +24,83 @@
 
 package com.owncloud.android.lib.common.http.interceptors;
 
+import com.owncloud.android.lib.common.http.HttpCallOptions;
+import okhttp3.Headers;
 import okhttp3.Interceptor;
 import okhttp3.Request;
 import okhttp3.Response;
 
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  * Http interceptor to use multiple interceptors in the same {@link okhttp3.OkHttpClient} instance
  *
+ * Request interceptors registered here are shared by every request; headers and options that only belong to a
+ * single request (request id, credentials, timeouts) must be scoped with
+ * {@link #bindScopedRequest(Headers, HttpCallOptions)} or tagged in the request instead.
+ *
  * @author David González Verdugo
  */
 public class HttpInterceptor implements Interceptor {
 
-    private final ArrayList<RequestInterceptor> mRequestInterceptors = new ArrayList<>();
-    private final ArrayList<ResponseInterceptor> mResponseInterceptors = new ArrayList<>();
+    /**
+     * Headers and options of the request being executed by the current thread. Synchronous OkHttp calls, the
+     * only ones performed by dav4android, run the application interceptors in the calling thread.
+     */
+    private static final ThreadLocal<Headers> sScopedRequestHeaders = new ThreadLocal<>();
+    private static final ThreadLocal<HttpCallOptions> sScopedCallOptions = new ThreadLocal<>();
+
+    private final CopyOnWriteArrayList<RequestInterceptor> mRequestInterceptors = new CopyOnWriteArrayList<>();
+    private final CopyOnWriteArrayList<ResponseInterceptor> mResponseInterceptors = new CopyOnWriteArrayList<>();
+
+    /**
+     * Makes the given headers and options part of every request started from the current thread, until
+     * {@link #unbindScopedRequest()} is called. Header values replace any header with the same name.
+     *
+     * @param headers     headers of the request about to be executed
+     * @param callOptions options of the request about to be executed
+     */
+    public static void bindScopedRequest(Headers headers, HttpCallOptions callOptions) {
+        sScopedRequestHeaders.set(headers);
+        sScopedCallOptions.set(callOptions);
+    }
+
+    public static void unbindScopedRequest() {
+        sScopedRequestHeaders.remove();
+        sScopedCallOptions.remove();
+    }
 
     @Override
     public Response intercept(Chain chain) throws IOException {
         Request request = chain.request();
 
+        HttpCallOptions callOptions = request.tag(HttpCallOptions.class);
+        if (callOptions == null) {
+            callOptions = sScopedCallOptions.get();
+        }
+        if (callOptions != null) {
+            chain = callOptions.applyTimeoutsTo(chain);
+        }
+
         for (RequestInterceptor interceptor : mRequestInterceptors) {
             request = interceptor.intercept(request);
         }
 
+        Headers scopedHeaders = sScopedRequestHeaders.get();
+        if (scopedHeaders != null && scopedHeaders.size() > 0) {
+            Request.Builder requestBuilder = request.newBuilder();
+            for (String headerName : scopedHeaders.names()) {
+                requestBuilder.removeHeader(headerName);
+                for (String headerValue : scopedHeaders.values(headerName)) {
+                    requestBuilder.addHeader(headerName, headerValue);
+                }
+            }
+            request = requestBuilder.build();
+        }
+
         Response response = chain.proceed(request);
 
         for (ResponseInterceptor interceptor : mResponseInterceptors) {
@@ -69,7 +120,7 @@ public class HttpInterceptor implements Interceptor {
         return this;
     }
 
-    public ArrayList<RequestInterceptor> getRequestInterceptors() {
+    public List<RequestInterceptor> getRequestInterceptors() {
         return mRequestInterceptors;
     }
 
@@ -86,17 +137,16 @@ public class HttpInterceptor implements Interceptor {
     }
 
     public void deleteRequestHeaderInterceptor(String headerName) {
-        Iterator<RequestInterceptor> requestInterceptorIterator = mRequestInterceptors.iterator();
-        while (requestInterceptorIterator.hasNext()) {
-            RequestInterceptor currentRequestInterceptor = requestInterceptorIterator.next();
-            if (currentRequestInterceptor instanceof RequestHeaderInterceptor &&
-                    ((RequestHeaderInterceptor) currentRequestInterceptor).getHeaderName().equals(headerName)) {
-                requestInterceptorIterator.remove();
+        ArrayList<RequestHeaderInterceptor> interceptorsToDelete = new ArrayList<>();
+        for (RequestHeaderInterceptor requestHeaderInterceptor : getRequestHeaderInterceptors()) {
+            if (requestHeaderInterceptor.getHeaderName().equals(headerName)) {
+                interceptorsToDelete.add(requestHeaderInterceptor);
             }
         }
+        mRequestInterceptors.removeAll(interceptorsToDelete);
     }
 
-    public ArrayList<ResponseInterceptor> getResponseInterceptors() {
+    public List<ResponseInterceptor> getResponseInterceptors() {
         return mResponseInterceptors;
     }
 
@@ -24,7 +24,9 @@
 
 package com.owncloud.android.lib.common.http.methods;
 
+import com.owncloud.android.lib.common.http.HttpCallOptions;
 import com.owncloud.android.lib.common.http.HttpClient;
+import com.owncloud.android.lib.common.http.RetryPolicy;
 import okhttp3.Call;
 import okhttp3.Headers;
 import okhttp3.HttpUrl;
@@ -47,6 +49,9 @@ import java.util.concurrent.TimeUnit;
  */
 public abstract class HttpBaseMethod {
     protected OkHttpClient mOkHttpClient;
+    protected HttpCallOptions mCallOptions = HttpCallOptions.DEFAULT;
+    protected RetryPolicy mRetryPolicy = null;
+    protected int mRetryCount = 0;
     protected Request mRequest;
     protected RequestBody mRequestBody;
     protected Response mResponse;
@@ -54,9 +59,10 @@ public abstract class HttpBaseMethod {
     protected Call mCall;
 
     protected HttpBaseMethod(URL url) {
-        mOkHttpClient = HttpClient.getOkHttpClient();
+        HttpUrl httpUrl = HttpUrl.parse(url.toString());
+        mOkHttpClient = HttpClient.getOkHttpClient(httpUrl);
         mRequest = new Request.Builder()
-                .url(HttpUrl.parse(url.toString()))
+                .url(httpUrl)
                 .build();
     }
 
@@ -64,12 +70,31 @@ public abstract class HttpBaseMethod {
         return onExecute();
     }
 
+    /**
+     * Executes the method without blocking the calling thread.
+     *
+     * By default the blocking execution is run in the shared bounded executor of {@link HttpClient}; methods able
+     * to use OkHttp asynchronous calls override it.
+     *
+     * @param callback Callback to notify when the response is available or the execution fails
+     */
+    public void executeAsync(final HttpMethodCallback callback) {
+        HttpClient.getAsyncExecutor().execute(() -> {
+            try {
+                int status = execute();
+                callback.onResponse(HttpBaseMethod.this, status);
+            } catch (Exception e) {
+                callback.onFailure(HttpBaseMethod.this, e);
+            }
+        });
+    }
+
     public void abort() {
         mCall.cancel();
     }
 
     public boolean isAborted() {
-        return mCall.isCanceled();
+        return mCall != null && mCall.isCanceled();
     }
 
     //////////////////////////////
@@ -78,6 +103,27 @@ public abstract class HttpBaseMethod {
 
     protected abstract int onExecute() throws Exception;
 
+    /**
+     * Tells if the method can be sent again after a failure without changing the final result in the server.
+     * Idempotent methods are retried on transient failures with the {@link RetryPolicy} of the client executing
+     * them, unless they set their own.
+     *
+     * @return 'true' if the method is idempotent; 'false' by default
+     */
+    public boolean isIdempotent() {
+        return false;
+    }
+
+    /**
+     * Called before the method is executed again after a transient failure.
+     *
+     * @param requestMayHaveBeenApplied 'true' if the previous attempt failed without a response, so the server might
+     *                                  have processed the request anyway
+     */
+    public void onRetry(boolean requestMayHaveBeenApplied) {
+        mRetryCount++;
+    }
+
     //////////////////////////////
     //         Getter
     //////////////////////////////
@@ -111,7 +157,7 @@ public abstract class HttpBaseMethod {
     }
 
     public InputStream getResponseBodyAsStream() {
-        if (mResponse.body() != null) {
+        if (mResponse != null && mResponse.body() != null) {
             return mResponse.body().byteStream();
         }
         return null;
@@ -122,11 +168,40 @@ public abstract class HttpBaseMethod {
     }
 
     public String getResponseHeader(String headerName) {
-        return mResponse.header(headerName);
+        return (mResponse != null) ? mResponse.header(headerName) : null;
     }
 
     public boolean getRetryOnConnectionFailure() {
-        return mOkHttpClient.retryOnConnectionFailure();
+        return mCallOptions.getRetryOnConnectionFailure(mOkHttpClient);
+    }
+
+    public boolean getFollowRedirects() {
+        return mCallOptions.getFollowRedirects(mOkHttpClient);
+    }
+
+    public HttpCallOptions getCallOptions() {
+        return mCallOptions;
+    }
+
+    /**
+     * @return Retry policy set for this method, or NULL if it depends on the client executing it
+     */
+    public RetryPolicy getRetryPolicy() {
+        return mRetryPolicy;
+    }
+
+    /**
+     * @return Number of times the method was retried after a transient failure
+     */
+    public int getRetryCount() {
+        return mRetryCount;
+    }
+
+    /**
+     * @return Client to perform the call with the current {@link HttpCallOptions}
+     */
+    protected OkHttpClient getCallOkHttpClient() {
+        return mCallOptions.resolveOkHttpClient(mOkHttpClient);
     }
 
     //////////////////////////////
@@ -135,28 +210,38 @@ public abstract class HttpBaseMethod {
 
     // Connection parameters
 
+    public void setCallOptions(HttpCallOptions callOptions) {
+        mCallOptions = (callOptions != null) ? callOptions : HttpCallOptions.DEFAULT;
+    }
+
+    /**
+     * Sets the policy to retry the method on transient failures, even if it is not idempotent.
+     *
+     * @param retryPolicy Policy to apply; NULL to use the one of the client if the method is idempotent, or
+     *                    {@link RetryPolicy#NONE} to never retry it
+     */
+    public void setRetryPolicy(RetryPolicy retryPolicy) {
+        mRetryPolicy = retryPolicy;
+    }
+
     public void setRetryOnConnectionFailure(boolean retryOnConnectionFailure) {
-        mOkHttpClient = mOkHttpClient.newBuilder()
-                .retryOnConnectionFailure(retryOnConnectionFailure)
-                .build();
+        mCallOptions = mCallOptions.withRetryOnConnectionFailure(retryOnConnectionFailure);
     }
 
     public void setReadTimeout(long readTimeout, TimeUnit timeUnit) {
-        mOkHttpClient = mOkHttpClient.newBuilder()
-                .readTimeout(readTimeout, timeUnit)
-                .build();
+        mCallOptions = mCallOptions.withReadTimeout(readTimeout, timeUnit);
+    }
+
+    public void setWriteTimeout(long writeTimeout, TimeUnit timeUnit) {
+        mCallOptions = mCallOptions.withWriteTimeout(writeTimeout, timeUnit);
     }
 
     public void setConnectionTimeout(long connectionTimeout, TimeUnit timeUnit) {
-        mOkHttpClient = mOkHttpClient.newBuilder()
-                .readTimeout(connectionTimeout, timeUnit)
-                .build();
+        mCallOptions = mCallOptions.withConnectTimeout(connectionTimeout, timeUnit);
     }
 
     public void setFollowRedirects(boolean followRedirects) {
-        mOkHttpClient = mOkHttpClient.newBuilder()
-                .followRedirects(followRedirects)
-                .build();
+        mCallOptions = mCallOptions.withFollowRedirects(followRedirects);
     }
 
     // Request
@@ -24,7 +24,8 @@
 
 package com.owncloud.android.lib.common.http.methods.nonwebdav;
 
-import java.io.IOException;
+import okhttp3.Request;
+
 import java.net.URL;
 
 /**
@@ -39,11 +40,7 @@ public class DeleteMethod extends HttpMethod {
     }
 
     @Override
-    public int onExecute() throws IOException {
-        mRequest = mRequest.newBuilder()
-                .delete()
-                .build();
-
-        return super.onExecute();
+    protected Request.Builder setRequestMethod(Request.Builder requestBuilder) {
+        return requestBuilder.delete();
     }
 }
\ No newline at end of file
@@ -24,7 +24,8 @@
 
 package com.owncloud.android.lib.common.http.methods.nonwebdav;
 
-import java.io.IOException;
+import okhttp3.Request;
+
 import java.net.URL;
 
 /**
@@ -39,11 +40,12 @@ public class GetMethod extends HttpMethod {
     }
 
     @Override
-    public int onExecute() throws IOException {
-        mRequest = mRequest.newBuilder()
-                .get()
-                .build();
+    public boolean isIdempotent() {
+        return true;
+    }
 
-        return super.onExecute();
+    @Override
+    protected Request.Builder setRequestMethod(Request.Builder requestBuilder) {
+        return requestBuilder.get();
     }
 }
\ No newline at end of file
@@ -24,7 +24,13 @@
 
 package com.owncloud.android.lib.common.http.methods.nonwebdav;
 
+import com.owncloud.android.lib.common.http.HttpCallOptions;
 import com.owncloud.android.lib.common.http.methods.HttpBaseMethod;
+import com.owncloud.android.lib.common.http.methods.HttpMethodCallback;
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.Request;
+import okhttp3.Response;
 
 import java.io.IOException;
 import java.net.URL;
@@ -42,8 +48,41 @@ public abstract class HttpMethod extends HttpBaseMethod {
 
     @Override
     public int onExecute() throws IOException {
-        mCall = mOkHttpClient.newCall(mRequest);
+        mCall = newCall();
         mResponse = mCall.execute();
         return super.getStatusCode();
     }
-}
\ No newline at end of file
+
+    /**
+     * Enqueues the call in the OkHttp dispatcher; no thread is blocked waiting for the response.
+     */
+    @Override
+    public void executeAsync(final HttpMethodCallback callback) {
+        mCall = newCall();
+        mCall.enqueue(new Callback() {
+            @Override
+            public void onResponse(Call call, Response response) {
+                mResponse = response;
+                callback.onResponse(HttpMethod.this, response.code());
+            }
+
+            @Override
+            public void onFailure(Call call, IOException e) {
+                callback.onFailure(HttpMethod.this, e);
+            }
+        });
+    }
+
+    private Call newCall() {
+        mRequest = setRequestMethod(mRequest.newBuilder())
+                .tag(HttpCallOptions.class, mCallOptions)
+                .build();
+        return getCallOkHttpClient().newCall(mRequest);
+    }
+
+    /**
+     * @param requestBuilder Builder with the URL and headers of the request
+     * @return The same builder, with the HTTP method and body of the request set
+     */
+    protected abstract Request.Builder setRequestMethod(Request.Builder requestBuilder);
+}
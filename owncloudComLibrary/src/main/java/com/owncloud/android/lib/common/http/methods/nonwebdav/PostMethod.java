@@ -24,7 +24,8 @@
 
 package com.owncloud.android.lib.common.http.methods.nonwebdav;
 
-import java.io.IOException;
+import okhttp3.Request;
+
 import java.net.URL;
 
 /**
@@ -39,11 +40,7 @@ public class PostMethod extends HttpMethod {
     }
 
     @Override
-    public int onExecute() throws IOException {
-        mRequest = mRequest.newBuilder()
-                .post(mRequestBody)
-                .build();
-
-        return super.onExecute();
+    protected Request.Builder setRequestMethod(Request.Builder requestBuilder) {
+        return requestBuilder.post(mRequestBody);
     }
 }
\ No newline at end of file
@@ -24,7 +24,8 @@
 
 package com.owncloud.android.lib.common.http.methods.nonwebdav;
 
-import java.io.IOException;
+import okhttp3.Request;
+
 import java.net.URL;
 
 public class PutMethod extends HttpMethod {
@@ -34,11 +35,7 @@ public class PutMethod extends HttpMethod {
     }
 
     @Override
-    public int onExecute() throws IOException {
-        mRequest = mRequest.newBuilder()
-                .put(mRequestBody)
-                .build();
-
-        return super.onExecute();
+    protected Request.Builder setRequestMethod(Request.Builder requestBuilder) {
+        return requestBuilder.put(mRequestBody);
     }
 }
\ No newline at end of file
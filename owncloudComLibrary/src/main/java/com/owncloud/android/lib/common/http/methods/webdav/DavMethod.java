@@ -29,14 +29,15 @@ import at.bitfire.dav4android.DavOCResource;
 import at.bitfire.dav4android.exception.HttpException;
 import at.bitfire.dav4android.exception.RedirectException;
 import com.owncloud.android.lib.common.http.HttpConstants;
+import com.owncloud.android.lib.common.http.interceptors.HttpInterceptor;
 import com.owncloud.android.lib.common.http.methods.HttpBaseMethod;
 import okhttp3.HttpUrl;
+import okhttp3.OkHttpClient;
 import okhttp3.Protocol;
 import okhttp3.Response;
 import okhttp3.ResponseBody;
 
 import java.net.URL;
-import java.util.concurrent.TimeUnit;
 
 /**
  * Wrapper to perform WebDAV (dav4android) calls
@@ -47,11 +48,21 @@ public abstract class DavMethod extends HttpBaseMethod {
 
     protected DavOCResource mDavResource;
 
+    /**
+     * Client {@link #mDavResource} was created with
+     */
+    private OkHttpClient mDavResourceOkHttpClient;
+
     protected DavMethod(URL url) {
         super(url);
+        createDavResource(mOkHttpClient);
+    }
+
+    private void createDavResource(OkHttpClient okHttpClient) {
+        mDavResourceOkHttpClient = okHttpClient;
         mDavResource = new DavOCResource(
-                mOkHttpClient,
-                HttpUrl.parse(url.toString()),
+                okHttpClient,
+                mRequest.url(),
                 Constants.INSTANCE.getLog());
     }
 
@@ -62,6 +73,16 @@ public abstract class DavMethod extends HttpBaseMethod {
 
     @Override
     public int execute() throws Exception {
+        // Call options only need a new resource if they change the redirection or retry policies, and the client
+        // for them is cached
+        OkHttpClient callOkHttpClient = getCallOkHttpClient();
+        if (callOkHttpClient != mDavResourceOkHttpClient) {
+            createDavResource(callOkHttpClient);
+        }
+
+        // dav4android builds its own requests, so the headers and options of this method are attached to them
+        // while the call runs in this thread
+        HttpInterceptor.bindScopedRequest(mRequest.headers(), mCallOptions);
         try {
             return onExecute();
         } catch (HttpException httpException) {
@@ -89,6 +110,8 @@ public abstract class DavMethod extends HttpBaseMethod {
             }
 
             return httpException.getCode();
+        } finally {
+            HttpInterceptor.unbindScopedRequest();
         }
     }
 
@@ -96,63 +119,18 @@ public abstract class DavMethod extends HttpBaseMethod {
     //         Setter
     //////////////////////////////
 
-    // Connection parameters
-    @Override
-    public void setReadTimeout(long readTimeout, TimeUnit timeUnit) {
-        super.setReadTimeout(readTimeout, timeUnit);
-        mDavResource = new DavOCResource(
-                mOkHttpClient,
-                HttpUrl.parse(mRequest.url().toString()),
-                Constants.INSTANCE.getLog());
-    }
-
-    @Override
-    public void setConnectionTimeout(long connectionTimeout, TimeUnit timeUnit) {
-        super.setConnectionTimeout(connectionTimeout, timeUnit);
-        mDavResource = new DavOCResource(
-                mOkHttpClient,
-                HttpUrl.parse(mRequest.url().toString()),
-                Constants.INSTANCE.getLog());
-    }
-
-    @Override
-    public void setFollowRedirects(boolean followRedirects) {
-        super.setFollowRedirects(followRedirects);
-        mDavResource = new DavOCResource(
-                mOkHttpClient,
-                HttpUrl.parse(mRequest.url().toString()),
-                Constants.INSTANCE.getLog());
-    }
-
     @Override
     public void setUrl(HttpUrl url) {
         super.setUrl(url);
-        mDavResource = new DavOCResource(
-                mOkHttpClient,
-                HttpUrl.parse(mRequest.url().toString()),
-                Constants.INSTANCE.getLog());
-    }
-
-    @Override
-    public boolean getRetryOnConnectionFailure() {
-        return false; //TODO: implement me
+        createDavResource(mDavResourceOkHttpClient);
     }
 
     //////////////////////////////
     //         Getter
     //////////////////////////////
 
-    @Override
-    public void setRetryOnConnectionFailure(boolean retryOnConnectionFailure) {
-        super.setRetryOnConnectionFailure(retryOnConnectionFailure);
-        mDavResource = new DavOCResource(
-                mOkHttpClient,
-                HttpUrl.parse(mRequest.url().toString()),
-                Constants.INSTANCE.getLog());
-    }
-
     @Override
     public boolean isAborted() {
         return mDavResource.isCallAborted();
     }
-}
\ No newline at end of file
+}
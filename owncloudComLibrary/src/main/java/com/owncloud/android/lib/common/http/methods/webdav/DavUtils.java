@@ -3,8 +3,55 @@ package com.owncloud.android.lib.common.http.methods.webdav;
 import at.bitfire.dav4android.Property;
 import at.bitfire.dav4android.PropertyUtils;
 
+import java.util.Arrays;
+
+/**
+ * Sets of WebDAV properties to request in PROPFIND and REPORT methods. Fewer properties mean smaller responses,
+ * faster to parse; the named profiles in {@link Propset} cover the usual needs:
+ * <ul>
+ * <li>{@link Propset#ETAG_ONLY}: ETag and resource type, to detect changes or check existence.</li>
+ * <li>{@link Propset#SYNC}: the properties needed to synchronize files.</li>
+ * <li>{@link Propset#FULL}: everything known by {@link com.owncloud.android.lib.resources.files.RemoteFile},
+ * the default of the operations reading files.</li>
+ * </ul>
+ */
 public class DavUtils {
 
+    /**
+     * Named profiles of properties to request; see {@link DavUtils}.
+     */
+    public enum Propset {
+        ETAG_ONLY,
+        SYNC,
+        FULL;
+
+        public Property.Name[] getProperties() {
+            switch (this) {
+                case ETAG_ONLY:
+                    return getEtagOnlyPropset();
+                case SYNC:
+                    return getSyncPropset();
+                default:
+                    return getAllPropset();
+            }
+        }
+    }
+
+    private static final String NS_WEBDAV = "DAV:";
+    private static final String NS_OWNCLOUD = "http://owncloud.org/ns";
+
+    private static final Property.Name GET_ETAG = new Property.Name(NS_WEBDAV, "getetag");
+    private static final Property.Name RESOURCE_TYPE = new Property.Name(NS_WEBDAV, "resourcetype");
+    private static final Property.Name GET_CONTENT_TYPE = new Property.Name(NS_WEBDAV, "getcontenttype");
+    private static final Property.Name GET_CONTENT_LENGTH = new Property.Name(NS_WEBDAV, "getcontentlength");
+    private static final Property.Name GET_LAST_MODIFIED = new Property.Name(NS_WEBDAV, "getlastmodified");
+    private static final Property.Name OC_ID = new Property.Name(NS_OWNCLOUD, "id");
+    private static final Property.Name OC_PERMISSIONS = new Property.Name(NS_OWNCLOUD, "permissions");
+    private static final Property.Name OC_SIZE = new Property.Name(NS_OWNCLOUD, "size");
+
+    /**
+     * Properties of {@link Propset#FULL}.
+     */
     public static final Property.Name[] getAllPropset() {
         return PropertyUtils.INSTANCE.getAllPropSet();
     }
@@ -12,4 +59,42 @@ public class DavUtils {
     public static final Property.Name[] getQuotaPropSet() {
         return PropertyUtils.INSTANCE.getQuotaPropset();
     }
-}
\ No newline at end of file
+
+    /**
+     * Properties of {@link Propset#ETAG_ONLY}.
+     */
+    public static final Property.Name[] getEtagOnlyPropset() {
+        return new Property.Name[]{GET_ETAG, RESOURCE_TYPE};
+    }
+
+    /**
+     * Properties of {@link Propset#SYNC}: the ones of {@link Propset#ETAG_ONLY}, plus type, length, modification
+     * date, id, permissions and size.
+     */
+    public static final Property.Name[] getSyncPropset() {
+        return new Property.Name[]{
+                GET_ETAG,
+                RESOURCE_TYPE,
+                GET_CONTENT_TYPE,
+                GET_CONTENT_LENGTH,
+                GET_LAST_MODIFIED,
+                OC_ID,
+                OC_PERMISSIONS,
+                OC_SIZE
+        };
+    }
+
+    /**
+     * Properties to check the files stored in a folder by their length only: length and resource type.
+     */
+    public static final Property.Name[] getLengthOnlyPropset() {
+        return new Property.Name[]{GET_CONTENT_LENGTH, RESOURCE_TYPE};
+    }
+
+    /**
+     * @return String identifying a set of properties, e.g. to tell apart requests for different sets
+     */
+    public static String getPropsetKey(Property.Name[] properties) {
+        return Arrays.toString(properties);
+    }
+}
@@ -24,10 +24,16 @@
 
 package com.owncloud.android.lib.common.http.methods.webdav;
 
+import com.owncloud.android.lib.common.http.HttpConstants;
+import com.owncloud.android.lib.common.utils.Log_OC;
 import kotlin.Unit;
+import okhttp3.Protocol;
+import okhttp3.Response;
 
 import java.net.URL;
 
+import static com.owncloud.android.lib.common.http.methods.webdav.DavConstants.DEPTH_0;
+
 /**
  * MkCol calls wrapper
  *
@@ -35,10 +41,65 @@ import java.net.URL;
  * @author David González Verdugo
  */
 public class MkColMethod extends DavMethod {
+
+    private static final String TAG = MkColMethod.class.getSimpleName();
+
+    /**
+     * A previous attempt failed without response, so the collection might have been created by it
+     */
+    private boolean mMayHaveBeenCreated = false;
+
     public MkColMethod(URL url) {
         super(url);
     }
 
+    /**
+     * A repeated MKCOL fails if an earlier attempt created the collection; that case is detected checking the
+     * collection exists.
+     */
+    @Override
+    public boolean isIdempotent() {
+        return true;
+    }
+
+    @Override
+    public void onRetry(boolean requestMayHaveBeenApplied) {
+        super.onRetry(requestMayHaveBeenApplied);
+        mMayHaveBeenCreated |= requestMayHaveBeenApplied;
+    }
+
+    @Override
+    public int execute() throws Exception {
+        int status = super.execute();
+
+        if (status == HttpConstants.HTTP_METHOD_NOT_ALLOWED && mMayHaveBeenCreated && collectionExists()) {
+            Log_OC.d(TAG, "Collection created by a previous attempt: " + mRequest.url());
+            mResponse = new Response.Builder()
+                    .code(HttpConstants.HTTP_CREATED)
+                    .request(mRequest)
+                    .message("Created")
+                    .protocol(Protocol.HTTP_1_1)
+                    .build();
+            status = HttpConstants.HTTP_CREATED;
+        }
+        return status;
+    }
+
+    private boolean collectionExists() {
+        try {
+            PropfindMethod propfind = new PropfindMethod(mRequest.url().url(), DEPTH_0, DavUtils.getEtagOnlyPropset());
+            for (String name : mRequest.headers().names()) {
+                propfind.setRequestHeader(name, mRequest.header(name));
+            }
+            int status = propfind.execute();
+            return status == HttpConstants.HTTP_MULTI_STATUS || status == HttpConstants.HTTP_OK;
+
+        } catch (Exception e) {
+            Log_OC.w(TAG, "Existence of " + mRequest.url() + " could not be checked: " + e.getMessage());
+            return false;
+        }
+    }
+
     @Override
     public int onExecute() throws Exception {
         mDavResource.mkCol(null, response -> {
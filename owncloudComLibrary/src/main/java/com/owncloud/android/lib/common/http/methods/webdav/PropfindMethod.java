@@ -48,6 +48,14 @@ public class PropfindMethod extends DavMethod {
     // response
     private final List<Response> mMembers;
     private Response mRoot;
+    private OnMemberListener mMemberListener = null;
+
+    /**
+     * Receives the members of the resource one by one, while the response is being read.
+     */
+    public interface OnMemberListener {
+        void onMember(Response member);
+    }
 
     public PropfindMethod(URL url, int depth, Property.Name[] propertiesToRequest) {
         super(url);
@@ -57,13 +65,26 @@ public class PropfindMethod extends DavMethod {
         mRoot = null;
     }
 
+    @Override
+    public boolean isIdempotent() {
+        return true;
+    }
+
     @Override
     public int onExecute() throws IOException, DavException {
+        // discard the results of a previous attempt
+        mMembers.clear();
+        mRoot = null;
+
         mDavResource.propfind(mDepth, mPropertiesToRequest,
                 (Response response, Response.HrefRelation hrefRelation) -> {
                     switch (hrefRelation) {
                         case MEMBER:
-                            mMembers.add(response);
+                            if (mMemberListener != null) {
+                                mMemberListener.onMember(response);
+                            } else {
+                                mMembers.add(response);
+                            }
                             break;
                         case SELF:
                             mRoot = response;
@@ -84,10 +105,23 @@ public class PropfindMethod extends DavMethod {
         return mDepth;
     }
 
+    /**
+     * @return Members of the resource; empty if they were delivered to an {@link OnMemberListener}
+     */
     public List<Response> getMembers() {
         return mMembers;
     }
 
+    /**
+     * Delivers the members of the resource to a listener as they are parsed, instead of keeping them in memory
+     * until the whole response is read.
+     *
+     * @param memberListener Listener to notify, in the thread executing the method; NULL to keep the members
+     */
+    public void setMemberListener(OnMemberListener memberListener) {
+        mMemberListener = memberListener;
+    }
+
     public Response getRoot() {
         return mRoot;
     }
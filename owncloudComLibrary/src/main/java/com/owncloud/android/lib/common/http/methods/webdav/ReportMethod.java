@@ -0,0 +1,111 @@
+/* ownCloud Android Library is available under MIT license
+ *   Copyright (C) 2019 ownCloud GmbH.
+ *
+ *   Permission is hereby granted, free of charge, to any person obtaining a copy
+ *   of this software and associated documentation files (the "Software"), to deal
+ *   in the Software without restriction, including without limitation the rights
+ *   to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *   copies of the Software, and to permit persons to whom the Software is
+ *   furnished to do so, subject to the following conditions:
+ *
+ *   The above copyright notice and this permission notice shall be included in
+ *   all copies or substantial portions of the Software.
+ *
+ *   THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ *   EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ *   MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ *   NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ *   BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN
+ *   ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ *   CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *   THE SOFTWARE.
+ *
+ */
+
+package com.owncloud.android.lib.common.http.methods.webdav;
+
+import at.bitfire.dav4android.Response;
+import at.bitfire.dav4android.XmlUtils;
+import com.owncloud.android.lib.common.http.methods.nonwebdav.HttpMethod;
+import kotlin.Unit;
+import okhttp3.MediaType;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import org.xmlpull.v1.XmlPullParser;
+import org.xmlpull.v1.XmlPullParserException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+
+/**
+ * Report calls wrapper.
+ * <p>
+ * dav4android has no support for REPORT, so the call is done with OkHttp; the multistatus response is parsed
+ * with dav4android while it is read, in {@link #parseMultiStatus(OnResponseListener)}.
+ */
+public class ReportMethod extends HttpMethod {
+
+    private static final String REPORT = "REPORT";
+    private static final MediaType XML_MEDIA_TYPE = MediaType.parse("application/xml; charset=utf-8");
+
+    private static final String NS_WEBDAV = "DAV:";
+    private static final String RESPONSE = "response";
+
+    /**
+     * Receives the responses in the multistatus one by one, while it is being read.
+     */
+    public interface OnResponseListener {
+        void onResponse(Response response);
+    }
+
+    /**
+     * @param url    URL of the resource the report is run on.
+     * @param report XML body of the report.
+     */
+    public ReportMethod(URL url, String report) {
+        super(url);
+        mRequestBody = RequestBody.create(XML_MEDIA_TYPE, report);
+    }
+
+    @Override
+    public boolean isIdempotent() {
+        return true;
+    }
+
+    @Override
+    protected Request.Builder setRequestMethod(Request.Builder requestBuilder) {
+        return requestBuilder.method(REPORT, mRequestBody);
+    }
+
+    /**
+     * Parses the multistatus response of the report, delivering every response in it but the one of the resource
+     * the report was run on. The body of the response is consumed and closed.
+     *
+     * @param responseListener Listener to notify, in the calling thread.
+     * @throws XmlPullParserException If the response is not well formed.
+     * @throws IOException            If the response cannot be read.
+     */
+    public void parseMultiStatus(final OnResponseListener responseListener)
+            throws XmlPullParserException, IOException {
+        XmlPullParser parser = XmlUtils.INSTANCE.newPullParser();
+        try (InputStream responseStream = getResponseBodyAsStream()) {
+            parser.setInput(responseStream, null);
+            int eventType = parser.getEventType();
+            while (eventType != XmlPullParser.END_DOCUMENT) {
+                // <d:multistatus> is at depth 1, and its <d:response> children at depth 2
+                if (eventType == XmlPullParser.START_TAG && parser.getDepth() == 2 &&
+                        NS_WEBDAV.equals(parser.getNamespace()) && RESPONSE.equals(parser.getName())) {
+                    Response.Companion.parse(parser, mRequest.url(),
+                            (Response response, Response.HrefRelation hrefRelation) -> {
+                                if (hrefRelation != Response.HrefRelation.SELF) {
+                                    responseListener.onResponse(response);
+                                }
+                                return Unit.INSTANCE;
+                            });
+                }
+                eventType = parser.next();
+            }
+        }
+    }
+}
@@ -26,7 +26,6 @@ package com.owncloud.android.lib.common.network;
 
 import android.util.Log;
 
-import com.owncloud.android.lib.common.utils.Log_OC;
 import okhttp3.MediaType;
 import okio.BufferedSink;
 
@@ -34,7 +33,6 @@ import java.io.File;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
-import java.util.Iterator;
 
 /**
  * A Request body that represents a file chunk and include information about the progress when uploading it
@@ -47,10 +45,10 @@ public class ChunkFromFileRequestBody extends FileRequestBody {
 
     //private final File mFile;
     private final FileChannel mChannel;
-    private final long mChunkSize;
+    private long mChunkSize;
     private long mOffset;
     private long mTransferred;
-    private ByteBuffer mBuffer = ByteBuffer.allocate(4096);
+    private ByteBuffer mBuffer = ByteBuffer.allocate(READ_SIZE);
 
     public ChunkFromFileRequestBody(File file, MediaType contentType, FileChannel channel, long chunkSize) {
         super(file, contentType);
@@ -69,7 +67,7 @@ public class ChunkFromFileRequestBody extends FileRequestBody {
     @Override
     public long contentLength() {
         try {
-            return Math.min(mChunkSize, mChannel.size() - mChannel.position());
+            return Math.min(mChunkSize, mChannel.size() - mOffset);
         } catch (IOException e) {
             return mChunkSize;
         }
@@ -78,41 +76,39 @@ public class ChunkFromFileRequestBody extends FileRequestBody {
     @Override
     public void writeTo(BufferedSink sink) {
         int readCount;
-        Iterator<OnDatatransferProgressListener> it;
 
         try {
-            mChannel.position(mOffset);
             long size = mFile.length();
             if (size == 0) {
                 size = -1;
             }
+            // positional reads do not move the channel, so several chunks of a file can be written at a time
+            long position = mOffset;
             long maxCount = Math.min(mOffset + mChunkSize, mChannel.size());
-            while (mChannel.position() < maxCount) {
-
-                Log_OC.d(TAG, "Sink buffer size: " + sink.buffer().size());
-
-                readCount = mChannel.read(mBuffer);
-
-                Log_OC.d(TAG, "Read " + readCount + " bytes from file channel to " + mBuffer.toString());
-
-                sink.buffer().write(mBuffer.array(), 0, readCount);
-
-                sink.flush();
-
-                Log_OC.d(TAG, "Write " + readCount + " bytes to sink buffer with size " + sink.buffer().size());
-
+            while (position < maxCount) {
                 mBuffer.clear();
-                if (mTransferred < maxCount) {  // condition to avoid accumulate progress for repeated chunks
-                    mTransferred += readCount;
+                mBuffer.limit((int) Math.min(mBuffer.capacity(), maxCount - position));
+                readCount = mChannel.read(mBuffer, position);
+                if (readCount < 0) {
+                    break;
                 }
-                synchronized (mDataTransferListeners) {
-                    it = mDataTransferListeners.iterator();
-                    while (it.hasNext()) {
-                        it.next().onTransferProgress(readCount, mTransferred, size, mFile.getAbsolutePath());
+
+                sink.write(mBuffer.array(), 0, readCount);
+                // complete segments go to the network now; the last one waits to be filled by the next read
+                sink.emitCompleteSegments();
+
+                position += readCount;
+                if (position > mTransferred) {  // condition to avoid accumulate progress for repeated chunks
+                    long progress = position - mTransferred;
+                    mTransferred = position;
+                    for (OnDatatransferProgressListener listener : mDataTransferListeners) {
+                        listener.onTransferProgress(progress, mTransferred, size, mFile.getAbsolutePath());
                     }
                 }
             }
 
+            sink.flush();
+
             Log.d(TAG, "Chunk with size " + mChunkSize + " written in request body");
 
         } catch (Exception exception) {
@@ -129,7 +125,24 @@ public class ChunkFromFileRequestBody extends FileRequestBody {
         }
     }
 
+    /**
+     * @param chunkSize Maximum length of the chunk to write; the last chunk of the file may be shorter.
+     */
+    public void setChunkSize(long chunkSize) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("Chunk size must be greater than zero");
+        }
+        mChunkSize = chunkSize;
+    }
+
+    /**
+     * Sets the position in the file of the chunk to write. Progress is reported from the farthest position
+     * written, so bytes before the offset count as transferred.
+     *
+     * @param offset Position in the file of the first byte of the chunk.
+     */
     public void setOffset(long offset) {
         this.mOffset = offset;
+        mTransferred = Math.max(mTransferred, offset);
     }
 }
\ No newline at end of file
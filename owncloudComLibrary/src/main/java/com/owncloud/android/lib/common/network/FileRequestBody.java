@@ -29,14 +29,13 @@ import android.util.Log;
 import okhttp3.MediaType;
 import okhttp3.RequestBody;
 import okio.BufferedSink;
-import okio.Okio;
-import okio.Source;
 
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
 import java.util.Collection;
-import java.util.HashSet;
-import java.util.Iterator;
 import java.util.Set;
+import java.util.concurrent.CopyOnWriteArraySet;
 
 /**
  * A Request body that represents a file and include information about the progress when uploading it
@@ -47,9 +46,16 @@ public class FileRequestBody extends RequestBody implements ProgressiveDataTrans
 
     private static final String TAG = FileRequestBody.class.getSimpleName();
 
+    /**
+     * Bytes read from the file at a time into a buffer of the body; sources of Okio read a single segment at
+     * a time, so the file is not read through them
+     */
+    protected static final int READ_SIZE = 64 * 1024;
+
     protected File mFile;
     private MediaType mContentType;
-    Set<OnDatatransferProgressListener> mDataTransferListeners = new HashSet<>();
+    // listeners change seldom, and are notified without locks
+    Set<OnDatatransferProgressListener> mDataTransferListeners = new CopyOnWriteArraySet<>();
 
     public FileRequestBody(File file, MediaType contentType) {
         mFile = file;
@@ -68,24 +74,23 @@ public class FileRequestBody extends RequestBody implements ProgressiveDataTrans
 
     @Override
     public void writeTo(BufferedSink sink) {
-        Source source;
-        Iterator<OnDatatransferProgressListener> it;
-        try {
-            source = Okio.source(mFile);
-
+        try (InputStream in = new FileInputStream(mFile)) {
+            long length = mFile.length();
+            String absolutePath = mFile.getAbsolutePath();
+            byte[] buffer = new byte[READ_SIZE];
             long transferred = 0;
-            long read;
+            int read;
 
-            while ((read = source.read(sink.buffer(), 4096)) != -1) {
+            while ((read = in.read(buffer)) != -1) {
+                sink.write(buffer, 0, read);
                 transferred += read;
-                sink.flush();
-                synchronized (mDataTransferListeners) {
-                    it = mDataTransferListeners.iterator();
-                    while (it.hasNext()) {
-                        it.next().onTransferProgress(read, transferred, mFile.length(), mFile.getAbsolutePath());
-                    }
+                // complete segments go to the network now; the last one waits to be filled by the next read
+                sink.emitCompleteSegments();
+                for (OnDatatransferProgressListener listener : mDataTransferListeners) {
+                    listener.onTransferProgress(read, transferred, length, absolutePath);
                 }
             }
+            sink.flush();
 
             Log.d(TAG, "File with name " + mFile.getName() + " and size " + mFile.length() +
                     " written in request body");
@@ -97,22 +102,16 @@ public class FileRequestBody extends RequestBody implements ProgressiveDataTrans
 
     @Override
     public void addDatatransferProgressListener(OnDatatransferProgressListener listener) {
-        synchronized (mDataTransferListeners) {
-            mDataTransferListeners.add(listener);
-        }
+        mDataTransferListeners.add(listener);
     }
 
     @Override
     public void addDatatransferProgressListeners(Collection<OnDatatransferProgressListener> listeners) {
-        synchronized (mDataTransferListeners) {
-            mDataTransferListeners.addAll(listeners);
-        }
+        mDataTransferListeners.addAll(listeners);
     }
 
     @Override
     public void removeDatatransferProgressListener(OnDatatransferProgressListener listener) {
-        synchronized (mDataTransferListeners) {
-            mDataTransferListeners.remove(listener);
-        }
+        mDataTransferListeners.remove(listener);
     }
 }
\ No newline at end of file
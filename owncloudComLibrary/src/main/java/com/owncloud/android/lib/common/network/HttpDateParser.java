@@ -0,0 +1,288 @@
+/* ownCloud Android Library is available under MIT license
+ *   Copyright (C) 2019 ownCloud GmbH.
+ *
+ *   Permission is hereby granted, free of charge, to any person obtaining a copy
+ *   of this software and associated documentation files (the "Software"), to deal
+ *   in the Software without restriction, including without limitation the rights
+ *   to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *   copies of the Software, and to permit persons to whom the Software is
+ *   furnished to do so, subject to the following conditions:
+ *
+ *   The above copyright notice and this permission notice shall be included in
+ *   all copies or substantial portions of the Software.
+ *
+ *   THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ *   EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ *   MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ *   NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ *   BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN
+ *   ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ *   CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *   THE SOFTWARE.
+ *
+ */
+
+package com.owncloud.android.lib.common.network;
+
+import java.text.ParsePosition;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+
+/**
+ * Parses the dates sent by servers in headers and WebDAV properties, from any thread without locking.
+ * <p>
+ * The usual forms, RFC 1123 (e.g. "Sun, 06 Nov 1994 08:49:37 GMT") and ISO 8601 with a time zone (e.g.
+ * "1994-11-06T08:49:37Z"), are parsed directly. Any other form is tried with a list of patterns, every thread
+ * with its own instances, starting with the last one that matched, since a server always uses the same.
+ * No exception is thrown for a date that does not match.
+ */
+final class HttpDateParser {
+
+    private static final String[] FALLBACK_PATTERNS = {
+            "yyyy-MM-dd'T'HH:mm:ss'Z'",
+            "EEE, dd MMM yyyy HH:mm:ss zzz",
+            "yyyy-MM-dd'T'HH:mm:ss.sss'Z'",
+            "yyyy-MM-dd'T'HH:mm:ssZ",
+            "EEE MMM dd HH:mm:ss zzz yyyy",
+            "EEEEEE, dd-MMM-yy HH:mm:ss zzz",
+            "EEE MMMM d HH:mm:ss yyyy",
+            "yyyy-MM-dd hh:mm:ss"
+    };
+
+    private static final ThreadLocal<SimpleDateFormat[]> sFallbackFormats = new ThreadLocal<SimpleDateFormat[]>() {
+        @Override
+        protected SimpleDateFormat[] initialValue() {
+            SimpleDateFormat[] formats = new SimpleDateFormat[FALLBACK_PATTERNS.length];
+            for (int i = 0; i < formats.length; i++) {
+                formats[i] = new SimpleDateFormat(FALLBACK_PATTERNS[i], Locale.US);
+            }
+            return formats;
+        }
+    };
+
+    private static volatile int sLastMatchedPattern = 0;
+
+    private static final String[] MONTHS = {
+            "Jan", "Feb", "Mar", "Apr", "May", "Jun", "Jul", "Aug", "Sep", "Oct", "Nov", "Dec"
+    };
+
+    private static final int INVALID = Integer.MIN_VALUE;
+
+    private static final long MILLIS_PER_MINUTE = 60 * 1000L;
+    private static final long MILLIS_PER_DAY = 24 * 60 * MILLIS_PER_MINUTE;
+
+    private HttpDateParser() {
+    }
+
+    /**
+     * @param date Date as sent by a server.
+     * @return Parsed date, or NULL if it is in an unknown form.
+     */
+    static Date parse(String date) {
+        if (date == null) {
+            return null;
+        }
+        date = date.trim();
+
+        Date parsedDate = parseRfc1123(date);
+        if (parsedDate == null) {
+            parsedDate = parseIso8601(date);
+        }
+        if (parsedDate == null) {
+            parsedDate = parseWithPatterns(date);
+        }
+        return parsedDate;
+    }
+
+    /**
+     * Parses "EEE, d MMM yyyy HH:mm:ss zone", with zone "GMT", "UTC", "UT", "Z" or a numeric offset.
+     */
+    private static Date parseRfc1123(String date) {
+        int length = date.length();
+        int pos = date.indexOf(", ");
+        if (pos < 0) {
+            return null;
+        }
+        pos += 2;
+
+        int dayEnd = date.indexOf(' ', pos);
+        if (dayEnd < 0 || dayEnd - pos < 1 || dayEnd - pos > 2) {
+            return null;
+        }
+        int day = parseDigits(date, pos, dayEnd);
+        pos = dayEnd + 1;
+
+        if (pos + 4 > length || date.charAt(pos + 3) != ' ') {
+            return null;
+        }
+        int month = parseMonth(date, pos);
+        pos += 4;
+
+        if (pos + 5 > length || date.charAt(pos + 4) != ' ') {
+            return null;
+        }
+        int year = parseDigits(date, pos, pos + 4);
+        pos += 5;
+
+        if (pos + 9 > length || date.charAt(pos + 2) != ':' || date.charAt(pos + 5) != ':' ||
+                date.charAt(pos + 8) != ' ') {
+            return null;
+        }
+        int hour = parseDigits(date, pos, pos + 2);
+        int minute = parseDigits(date, pos + 3, pos + 5);
+        int second = parseDigits(date, pos + 6, pos + 8);
+
+        int offsetMinutes = parseZone(date, pos + 9);
+
+        return toDate(year, month, day, hour, minute, second, 0, offsetMinutes);
+    }
+
+    /**
+     * Parses "yyyy-MM-dd'T'HH:mm:ss", with optional fraction of second, followed by "Z" or a numeric offset.
+     */
+    private static Date parseIso8601(String date) {
+        int length = date.length();
+        if (length < 20 || date.charAt(4) != '-' || date.charAt(7) != '-' || date.charAt(10) != 'T' ||
+                date.charAt(13) != ':' || date.charAt(16) != ':') {
+            return null;
+        }
+        int year = parseDigits(date, 0, 4);
+        int month = parseDigits(date, 5, 7);
+        int day = parseDigits(date, 8, 10);
+        int hour = parseDigits(date, 11, 13);
+        int minute = parseDigits(date, 14, 16);
+        int second = parseDigits(date, 17, 19);
+
+        int pos = 19;
+        int millis = 0;
+        if (date.charAt(pos) == '.') {
+            int start = ++pos;
+            int scale = 100;
+            while (pos < length && isDigit(date.charAt(pos))) {
+                millis += (date.charAt(pos) - '0') * scale;
+                scale /= 10;
+                pos++;
+            }
+            if (pos == start) {
+                return null;
+            }
+        }
+
+        int offsetMinutes = parseZone(date, pos);
+
+        return toDate(year, month, day, hour, minute, second, millis, offsetMinutes);
+    }
+
+    private static Date parseWithPatterns(String date) {
+        SimpleDateFormat[] formats = sFallbackFormats.get();
+        int first = sLastMatchedPattern;
+        for (int i = 0; i < formats.length; i++) {
+            int index = (first + i) % formats.length;
+            Date parsedDate = formats[index].parse(date, new ParsePosition(0));
+            if (parsedDate != null) {
+                sLastMatchedPattern = index;
+                return parsedDate;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return Offset of the zone that takes the rest of the string, in minutes, or {@link #INVALID}.
+     */
+    private static int parseZone(String date, int pos) {
+        int length = date.length() - pos;
+        if (date.startsWith("GMT", pos) || date.startsWith("UTC", pos)) {
+            return (length == 3) ? 0 : INVALID;
+        }
+        if ((date.startsWith("UT", pos) && length == 2) || (date.startsWith("Z", pos) && length == 1)) {
+            return 0;
+        }
+        if (length < 5 || (date.charAt(pos) != '+' && date.charAt(pos) != '-')) {
+            return INVALID;
+        }
+        int hours = parseDigits(date, pos + 1, pos + 3);
+        int minutes;
+        if (length == 5) {
+            minutes = parseDigits(date, pos + 3, pos + 5);
+        } else if (length == 6 && date.charAt(pos + 3) == ':') {
+            minutes = parseDigits(date, pos + 4, pos + 6);
+        } else {
+            return INVALID;
+        }
+        if (hours == INVALID || minutes == INVALID || hours > 23 || minutes > 59) {
+            return INVALID;
+        }
+        int offset = hours * 60 + minutes;
+        return (date.charAt(pos) == '-') ? -offset : offset;
+    }
+
+    private static int parseMonth(String date, int pos) {
+        for (int i = 0; i < MONTHS.length; i++) {
+            if (date.regionMatches(true, pos, MONTHS[i], 0, 3)) {
+                return i + 1;
+            }
+        }
+        return INVALID;
+    }
+
+    private static int parseDigits(String date, int start, int end) {
+        int value = 0;
+        for (int i = start; i < end; i++) {
+            char c = date.charAt(i);
+            if (!isDigit(c)) {
+                return INVALID;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static Date toDate(int year, int month, int day, int hour, int minute, int second, int millis,
+                               int offsetMinutes) {
+        if (year == INVALID || month == INVALID || day == INVALID || hour == INVALID || minute == INVALID ||
+                second == INVALID || offsetMinutes == INVALID) {
+            return null;
+        }
+        if (month < 1 || month > 12 || day < 1 || day > daysInMonth(year, month) || hour > 23 || minute > 59 ||
+                second > 60) {
+            return null;
+        }
+        long time = daysFromEpoch(year, month, day) * MILLIS_PER_DAY +
+                ((hour * 60L + minute) * 60L + second) * 1000L + millis -
+                offsetMinutes * MILLIS_PER_MINUTE;
+        return new Date(time);
+    }
+
+    private static int daysInMonth(int year, int month) {
+        switch (month) {
+            case 2:
+                boolean leap = (year % 4 == 0 && year % 100 != 0) || year % 400 == 0;
+                return leap ? 29 : 28;
+            case 4:
+            case 6:
+            case 9:
+            case 11:
+                return 30;
+            default:
+                return 31;
+        }
+    }
+
+    /**
+     * Days from 1970-01-01 to a date of the proleptic Gregorian calendar.
+     */
+    private static long daysFromEpoch(int year, int month, int day) {
+        long y = (month <= 2) ? year - 1 : year;
+        long era = ((y >= 0) ? y : y - 399) / 400;
+        long yearOfEra = y - era * 400;
+        long dayOfYear = (153 * (month + ((month > 2) ? -3 : 9)) + 2) / 5 + day - 1;
+        long dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146097 + dayOfEra - 719468;
+    }
+}
@@ -0,0 +1,148 @@
+/* ownCloud Android Library is available under MIT license
+ *   Copyright (C) 2019 ownCloud GmbH.
+ *
+ *   Permission is hereby granted, free of charge, to any person obtaining a copy
+ *   of this software and associated documentation files (the "Software"), to deal
+ *   in the Software without restriction, including without limitation the rights
+ *   to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *   copies of the Software, and to permit persons to whom the Software is
+ *   furnished to do so, subject to the following conditions:
+ *
+ *   The above copyright notice and this permission notice shall be included in
+ *   all copies or substantial portions of the Software.
+ *
+ *   THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ *   EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ *   MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ *   NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ *   BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN
+ *   ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ *   CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *   THE SOFTWARE.
+ *
+ */
+
+package com.owncloud.android.lib.common.network;
+
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Forwards the progress of a transfer to a collection of listeners, coalescing it so they are notified only every
+ * time the transfer advances a percentage of its total or a time interval passes, and when it finishes. The end
+ * is detected when the total is known; otherwise, or to be sure, the owner of the transfer calls {@link #finish()}.
+ * <p>
+ * The bytes transferred between notifications while there are listeners are added up in the 'read' of the next
+ * one. Progress can be reported from several threads at a time; notifications never go back. No locks are taken,
+ * so the listeners must be kept in a thread safe collection that does not lock to iterate, as
+ * {@link java.util.concurrent.CopyOnWriteArraySet}; they can be added and removed during the transfer.
+ */
+public class ProgressDispatcher implements OnDatatransferProgressListener {
+
+    public static final int DEFAULT_MIN_PERCENT_STEP = 1;
+    public static final long DEFAULT_MIN_INTERVAL = 250; // ms
+
+    private final Collection<OnDatatransferProgressListener> mListeners;
+    private volatile int mMinPercentStep = DEFAULT_MIN_PERCENT_STEP;
+    private volatile long mMinIntervalNanos = TimeUnit.MILLISECONDS.toNanos(DEFAULT_MIN_INTERVAL);
+
+    private final AtomicLong mPendingBytes = new AtomicLong(0);
+    private final AtomicLong mLastDispatchedTransferred = new AtomicLong(-1);
+    private volatile long mLastDispatchTime = System.nanoTime();
+
+    // farthest progress reported, for finish()
+    private final AtomicLong mLastTransferred = new AtomicLong(-1);
+    private volatile long mLastTotal = -1;
+    private volatile String mLastAbsolutePath = null;
+
+    /**
+     * @param listeners Listeners to notify; thread safe, with iteration free of locks.
+     */
+    public ProgressDispatcher(Collection<OnDatatransferProgressListener> listeners) {
+        if (listeners == null) {
+            throw new IllegalArgumentException("Parameter 'listeners' cannot be NULL");
+        }
+        mListeners = listeners;
+    }
+
+    /**
+     * Sets how often listeners are notified; the first threshold reached triggers a notification.
+     *
+     * @param minPercentStep Percentage of the total to transfer between notifications, 0 to ignore it.
+     * @param minInterval    Milliseconds between notifications, 0 to ignore it.
+     */
+    public void setThresholds(int minPercentStep, long minInterval) {
+        if (minPercentStep < 0 || minPercentStep > 100) {
+            throw new IllegalArgumentException("minPercentStep MUST BE between 0 and 100");
+        }
+        if (minInterval < 0) {
+            throw new IllegalArgumentException("minInterval MUST BE zero or greater");
+        }
+        mMinPercentStep = minPercentStep;
+        mMinIntervalNanos = TimeUnit.MILLISECONDS.toNanos(minInterval);
+    }
+
+    /**
+     * Reports progress of the transfer; listeners are notified if a threshold was reached.
+     *
+     * @param read         Bytes transferred since the previous report.
+     * @param transferred  Bytes transferred in total.
+     * @param total        Bytes to transfer, or a value not greater than zero if unknown.
+     * @param absolutePath Path of the local file transferred.
+     */
+    @Override
+    public void onTransferProgress(long read, long transferred, long total, String absolutePath) {
+        if (mListeners.isEmpty()) {
+            // a listener added later must not get all these bytes in its first 'read'
+            return;
+        }
+        mPendingBytes.addAndGet(read);
+        mLastTotal = total;
+        mLastAbsolutePath = absolutePath;
+        long lastTransferred;
+        do {
+            lastTransferred = mLastTransferred.get();
+        } while (transferred > lastTransferred && !mLastTransferred.compareAndSet(lastTransferred, transferred));
+
+        dispatch(transferred, total, absolutePath, total > 0 && transferred >= total);
+    }
+
+    /**
+     * Notifies the listeners of the last progress reported, if they were not yet; to call when the transfer
+     * finishes, so they get its end even when the total was unknown.
+     */
+    public void finish() {
+        long transferred = mLastTransferred.get();
+        if (transferred >= 0 && !mListeners.isEmpty()) {
+            dispatch(transferred, mLastTotal, mLastAbsolutePath, true);
+        }
+    }
+
+    private void dispatch(long transferred, long total, String absolutePath, boolean finished) {
+        long now = System.nanoTime();
+        long lastTransferred;
+        do {
+            lastTransferred = mLastDispatchedTransferred.get();
+            if (transferred <= lastTransferred) {
+                // already notified by another thread, or the transfer went back to repeat a part
+                return;
+            }
+            if (!finished && !isStepReached(transferred - Math.max(0, lastTransferred), total) &&
+                    now - mLastDispatchTime < mMinIntervalNanos) {
+                return;
+            }
+        } while (!mLastDispatchedTransferred.compareAndSet(lastTransferred, transferred));
+
+        mLastDispatchTime = now;
+        long coalescedRead = mPendingBytes.getAndSet(0);
+        for (OnDatatransferProgressListener listener : mListeners) {
+            listener.onTransferProgress(coalescedRead, transferred, total, absolutePath);
+        }
+    }
+
+    private boolean isStepReached(long advanced, long total) {
+        int minPercentStep = mMinPercentStep;
+        return total > 0 && minPercentStep > 0 && advanced * 100 >= total * minPercentStep;
+    }
+}
@@ -29,41 +29,44 @@ import android.net.Uri;
 
 import com.owncloud.android.lib.common.http.methods.HttpBaseMethod;
 
-import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.Date;
-import java.util.Locale;
 
 public class WebdavUtils {
+    private static final String DISPLAY_DATE_PATTERN = "dd.MM.yyyy hh:mm";
+
+    /**
+     * @deprecated SimpleDateFormat is not thread safe; use {@link #formatDisplayDate(Date)} instead.
+     */
+    @Deprecated
     public static final SimpleDateFormat DISPLAY_DATE_FORMAT = new SimpleDateFormat(
-            "dd.MM.yyyy hh:mm");
+            DISPLAY_DATE_PATTERN);
 
-    private static final SimpleDateFormat DATETIME_FORMATS[] = {
-            new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss'Z'", Locale.US),
-            new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss zzz", Locale.US),
-            new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.sss'Z'", Locale.US),
-            new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ssZ", Locale.US),
-            new SimpleDateFormat("EEE MMM dd HH:mm:ss zzz yyyy", Locale.US),
-            new SimpleDateFormat("EEEEEE, dd-MMM-yy HH:mm:ss zzz", Locale.US),
-            new SimpleDateFormat("EEE MMMM d HH:mm:ss yyyy", Locale.US),
-            new SimpleDateFormat("yyyy-MM-dd hh:mm:ss", Locale.US)
+    private static final ThreadLocal<SimpleDateFormat> sDisplayDateFormat = new ThreadLocal<SimpleDateFormat>() {
+        @Override
+        protected SimpleDateFormat initialValue() {
+            return new SimpleDateFormat(DISPLAY_DATE_PATTERN);
+        }
     };
 
+    /**
+     * Parses a date sent by the server, in a header or a WebDAV property. Can be called from any thread.
+     *
+     * @param date Date as sent by the server
+     * @return Parsed date, or NULL if the format is unknown
+     */
     public static Date parseResponseDate(String date) {
-        Date returnDate = null;
-        SimpleDateFormat format = null;
-        for (int i = 0; i < DATETIME_FORMATS.length; ++i) {
-            try {
-                format = DATETIME_FORMATS[i];
-                synchronized (format) {
-                    returnDate = format.parse(date);
-                }
-                return returnDate;
-            } catch (ParseException e) {
-                // this is not the format
-            }
-        }
-        return null;
+        return HttpDateParser.parse(date);
+    }
+
+    /**
+     * Formats a date to display, as "dd.MM.yyyy hh:mm". Can be called from any thread.
+     *
+     * @param date Date to format
+     * @return Formatted date
+     */
+    public static String formatDisplayDate(Date date) {
+        return sDisplayDateFormat.get().format(date);
     }
 
     /**
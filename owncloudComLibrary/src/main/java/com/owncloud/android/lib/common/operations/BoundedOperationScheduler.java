@@ -0,0 +1,300 @@
+/* ownCloud Android Library is available under MIT license
+ *   Copyright (C) 2019 ownCloud GmbH.
+ *
+ *   Permission is hereby granted, free of charge, to any person obtaining a copy
+ *   of this software and associated documentation files (the "Software"), to deal
+ *   in the Software without restriction, including without limitation the rights
+ *   to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *   copies of the Software, and to permit persons to whom the Software is
+ *   furnished to do so, subject to the following conditions:
+ *
+ *   The above copyright notice and this permission notice shall be included in
+ *   all copies or substantial portions of the Software.
+ *
+ *   THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ *   EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ *   MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ *   NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ *   BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN
+ *   ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ *   CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *   THE SOFTWARE.
+ *
+ */
+
+package com.owncloud.android.lib.common.operations;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * {@link OperationScheduler} running operations in a fixed number of threads, with a limit of operations running
+ * at the same time for every account.
+ * <p>
+ * Operations exceeding the limits wait in a queue per account. Waiting operations of a {@link RequestPriority}
+ * always run before the ones of lower classes, so interactive requests skip ahead of queued transfers; inside a
+ * class they run in FIFO or priority order. {@link RequestPriority#BULK} operations, which hold their connection
+ * for the whole transfer, have their own limit of operations running at the same time, so they never take all the
+ * threads and connections.
+ * <p>
+ * When the total of waiting operations reaches its maximum, new ones are rejected.
+ */
+public class BoundedOperationScheduler implements OperationScheduler {
+
+    private static final String TAG = BoundedOperationScheduler.class.getSimpleName();
+
+    public static final int DEFAULT_MAX_CONCURRENT_OPERATIONS = 8;
+    public static final int DEFAULT_MAX_CONCURRENT_OPERATIONS_PER_ACCOUNT = 4;
+    public static final int DEFAULT_MAX_CONCURRENT_BULK_OPERATIONS = 3;
+    public static final int DEFAULT_MAX_QUEUED_OPERATIONS = 10000;
+
+    private static final long THREAD_KEEP_ALIVE = 30;
+
+    public enum QueueOrder {
+        /**
+         * Operations of the same class run in the order they were scheduled
+         */
+        FIFO,
+        /**
+         * Operations of the same class with higher priority run first; operations with the same priority run in the
+         * order they were scheduled
+         */
+        PRIORITY
+    }
+
+    private final int mMaxConcurrentOperations;
+    private final int mMaxConcurrentOperationsPerAccount;
+    private final int mMaxConcurrentBulkOperations;
+    private final int mMaxQueuedOperations;
+    private final QueueOrder mQueueOrder;
+
+    private final ExecutorService mExecutor;
+
+    // All below guarded by 'this'
+    private final Map<String, AccountQueue> mAccountQueues = new HashMap<>();
+    private int mRunningOperations = 0;
+    private int mRunningBulkOperations = 0;
+    private int mQueuedOperations = 0;
+    private long mSequence = 0;
+    private long mStartedOperations = 0;
+    private long mTotalWaitTime = 0;
+    private long mMaxWaitTime = 0;
+
+    public BoundedOperationScheduler() {
+        this(DEFAULT_MAX_CONCURRENT_OPERATIONS, DEFAULT_MAX_CONCURRENT_OPERATIONS_PER_ACCOUNT,
+                DEFAULT_MAX_CONCURRENT_BULK_OPERATIONS, DEFAULT_MAX_QUEUED_OPERATIONS, QueueOrder.PRIORITY);
+    }
+
+    /**
+     * @param maxConcurrentOperations           Maximum number of operations running at the same time.
+     * @param maxConcurrentOperationsPerAccount Maximum number of operations of the same account running at the same
+     *                                          time.
+     * @param maxConcurrentBulkOperations       Maximum number of {@link RequestPriority#BULK} operations running at
+     *                                          the same time.
+     * @param maxQueuedOperations               Maximum number of operations waiting to run.
+     * @param queueOrder                        Order of the waiting operations inside each class.
+     * @throws IllegalArgumentException If any of the limits is lower than 1.
+     */
+    public BoundedOperationScheduler(int maxConcurrentOperations, int maxConcurrentOperationsPerAccount,
+                                     int maxConcurrentBulkOperations, int maxQueuedOperations,
+                                     QueueOrder queueOrder) {
+        if (maxConcurrentOperations < 1 || maxConcurrentOperationsPerAccount < 1 ||
+                maxConcurrentBulkOperations < 1 || maxQueuedOperations < 1) {
+            throw new IllegalArgumentException("Limits MUST BE one or greater");
+        }
+        if (queueOrder == null) {
+            throw new IllegalArgumentException("Queue order cannot be NULL");
+        }
+        mMaxConcurrentOperations = maxConcurrentOperations;
+        mMaxConcurrentOperationsPerAccount = maxConcurrentOperationsPerAccount;
+        mMaxConcurrentBulkOperations = maxConcurrentBulkOperations;
+        mMaxQueuedOperations = maxQueuedOperations;
+        mQueueOrder = queueOrder;
+
+        final AtomicInteger threadCounter = new AtomicInteger();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(
+                maxConcurrentOperations,
+                maxConcurrentOperations,
+                THREAD_KEEP_ALIVE,
+                TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(),
+                runnable -> new Thread(runnable, TAG + " #" + threadCounter.incrementAndGet())
+        );
+        executor.allowCoreThreadTimeOut(true);
+        mExecutor = executor;
+    }
+
+    @Override
+    public void schedule(String accountName, RequestPriority requestPriority, int priority, Runnable task)
+            throws RejectedExecutionException {
+        String accountKey = (accountName != null) ? accountName : "";
+        RequestPriority priorityClass = (requestPriority != null) ? requestPriority : RequestPriority.BACKGROUND;
+        synchronized (this) {
+            if (mQueuedOperations >= mMaxQueuedOperations) {
+                throw new RejectedExecutionException(
+                        "Too many operations waiting to run: " + mQueuedOperations
+                );
+            }
+            AccountQueue accountQueue = mAccountQueues.get(accountKey);
+            if (accountQueue == null) {
+                accountQueue = new AccountQueue(accountKey);
+                mAccountQueues.put(accountKey, accountQueue);
+            }
+            int effectivePriority = (mQueueOrder == QueueOrder.PRIORITY) ? priority : 0;
+            accountQueue.mWaiting.add(new ScheduledTask(task, priorityClass, effectivePriority, mSequence++));
+            mQueuedOperations++;
+            dispatch();
+        }
+    }
+
+    /**
+     * Starts waiting operations while there are free slots. Must be called holding the lock.
+     */
+    private void dispatch() {
+        while (mRunningOperations < mMaxConcurrentOperations) {
+            AccountQueue nextQueue = null;
+            for (AccountQueue accountQueue : mAccountQueues.values()) {
+                ScheduledTask candidate = accountQueue.mWaiting.peek();
+                // Bulk operations sort last, so a queue with a bulk operation first has nothing else waiting
+                if (candidate != null && accountQueue.mRunning < mMaxConcurrentOperationsPerAccount &&
+                        (!candidate.isBulk() || mRunningBulkOperations < mMaxConcurrentBulkOperations) &&
+                        (nextQueue == null ||
+                                ScheduledTask.ORDER.compare(candidate, nextQueue.mWaiting.peek()) < 0)) {
+                    nextQueue = accountQueue;
+                }
+            }
+            if (nextQueue == null) {
+                return;
+            }
+            final AccountQueue accountQueue = nextQueue;
+            final ScheduledTask scheduledTask = accountQueue.mWaiting.poll();
+            mQueuedOperations--;
+            mRunningOperations++;
+            accountQueue.mRunning++;
+            if (scheduledTask.isBulk()) {
+                mRunningBulkOperations++;
+            }
+
+            long waitTime = System.currentTimeMillis() - scheduledTask.mScheduledAt;
+            mStartedOperations++;
+            mTotalWaitTime += waitTime;
+            mMaxWaitTime = Math.max(mMaxWaitTime, waitTime);
+
+            mExecutor.execute(() -> {
+                try {
+                    scheduledTask.mTask.run();
+                } finally {
+                    onFinished(accountQueue, scheduledTask);
+                }
+            });
+        }
+    }
+
+    private synchronized void onFinished(AccountQueue accountQueue, ScheduledTask scheduledTask) {
+        mRunningOperations--;
+        accountQueue.mRunning--;
+        if (scheduledTask.isBulk()) {
+            mRunningBulkOperations--;
+        }
+        if (accountQueue.mRunning == 0 && accountQueue.mWaiting.isEmpty()) {
+            mAccountQueues.remove(accountQueue.mAccountKey);
+        }
+        dispatch();
+    }
+
+    /**
+     * @return Number of operations waiting to run.
+     */
+    public synchronized int getQueueDepth() {
+        return mQueuedOperations;
+    }
+
+    /**
+     * @param accountName Name of an account
+     * @return Number of operations of the account waiting to run.
+     */
+    public synchronized int getQueueDepth(String accountName) {
+        AccountQueue accountQueue = mAccountQueues.get(accountName != null ? accountName : "");
+        return (accountQueue != null) ? accountQueue.mWaiting.size() : 0;
+    }
+
+    /**
+     * @return Number of operations running right now.
+     */
+    public synchronized int getRunningOperations() {
+        return mRunningOperations;
+    }
+
+    /**
+     * @return Number of {@link RequestPriority#BULK} operations running right now.
+     */
+    public synchronized int getRunningBulkOperations() {
+        return mRunningBulkOperations;
+    }
+
+    /**
+     * @return Average time, in milliseconds, the operations started so far waited in queue.
+     */
+    public synchronized long getAverageWaitTime() {
+        return (mStartedOperations > 0) ? mTotalWaitTime / mStartedOperations : 0;
+    }
+
+    /**
+     * @return Longest time, in milliseconds, an operation started so far waited in queue.
+     */
+    public synchronized long getMaxWaitTime() {
+        return mMaxWaitTime;
+    }
+
+    private static class AccountQueue {
+        private final String mAccountKey;
+        private final PriorityQueue<ScheduledTask> mWaiting;
+        private int mRunning = 0;
+
+        AccountQueue(String accountKey) {
+            mAccountKey = accountKey;
+            mWaiting = new PriorityQueue<>(11, ScheduledTask.ORDER);
+        }
+    }
+
+    private static class ScheduledTask {
+
+        /**
+         * Higher class first; inside a class, higher priority first; same priority in scheduling order
+         */
+        static final Comparator<ScheduledTask> ORDER = (first, second) -> {
+            if (first.mRequestPriority != second.mRequestPriority) {
+                return first.mRequestPriority.compareTo(second.mRequestPriority);
+            }
+            if (first.mPriority != second.mPriority) {
+                return Integer.compare(second.mPriority, first.mPriority);
+            }
+            return Long.compare(first.mSequence, second.mSequence);
+        };
+
+        private final Runnable mTask;
+        private final RequestPriority mRequestPriority;
+        private final int mPriority;
+        private final long mSequence;
+        private final long mScheduledAt = System.currentTimeMillis();
+
+        ScheduledTask(Runnable task, RequestPriority requestPriority, int priority, long sequence) {
+            mTask = task;
+            mRequestPriority = requestPriority;
+            mPriority = priority;
+            mSequence = sequence;
+        }
+
+        boolean isBulk() {
+            return mRequestPriority == RequestPriority.BULK;
+        }
+    }
+}
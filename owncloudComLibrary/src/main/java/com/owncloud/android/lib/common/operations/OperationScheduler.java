@@ -0,0 +1,48 @@
+/* ownCloud Android Library is available under MIT license
+ *   Copyright (C) 2019 ownCloud GmbH.
+ *
+ *   Permission is hereby granted, free of charge, to any person obtaining a copy
+ *   of this software and associated documentation files (the "Software"), to deal
+ *   in the Software without restriction, including without limitation the rights
+ *   to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *   copies of the Software, and to permit persons to whom the Software is
+ *   furnished to do so, subject to the following conditions:
+ *
+ *   The above copyright notice and this permission notice shall be included in
+ *   all copies or substantial portions of the Software.
+ *
+ *   THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ *   EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ *   MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ *   NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ *   BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN
+ *   ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ *   CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *   THE SOFTWARE.
+ *
+ */
+
+package com.owncloud.android.lib.common.operations;
+
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Decides when and in which thread the asynchronous {@link RemoteOperation}s are run.
+ *
+ * @see RemoteOperation#setOperationScheduler(OperationScheduler)
+ * @see BoundedOperationScheduler
+ */
+public interface OperationScheduler {
+
+    /**
+     * Schedules the execution of an operation. Must not block the calling thread.
+     *
+     * @param accountName     Name of the account the operation works on; empty if unknown
+     * @param requestPriority Class of traffic of the operation
+     * @param priority        Priority of the operation inside its class; higher values should run first
+     * @param task            Task running the operation
+     * @throws RejectedExecutionException If the task cannot be accepted, e.g. too many operations are waiting
+     */
+    void schedule(String accountName, RequestPriority requestPriority, int priority, Runnable task)
+            throws RejectedExecutionException;
+}
@@ -0,0 +1,160 @@
+/* ownCloud Android Library is available under MIT license
+ *   Copyright (C) 2019 ownCloud GmbH.
+ *
+ *   Permission is hereby granted, free of charge, to any person obtaining a copy
+ *   of this software and associated documentation files (the "Software"), to deal
+ *   in the Software without restriction, including without limitation the rights
+ *   to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *   copies of the Software, and to permit persons to whom the Software is
+ *   furnished to do so, subject to the following conditions:
+ *
+ *   The above copyright notice and this permission notice shall be included in
+ *   all copies or substantial portions of the Software.
+ *
+ *   THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ *   EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ *   MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ *   NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ *   BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN
+ *   ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ *   CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *   THE SOFTWARE.
+ *
+ */
+
+package com.owncloud.android.lib.common.operations;
+
+import com.owncloud.android.lib.common.utils.Log_OC;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Runs the parts of an operation in parallel through an {@link OperationScheduler}, so they count toward its
+ * limits per account and class of traffic like any other operation.
+ * <p>
+ * The calling thread runs parts too, and helpers scheduled in the scheduler take the rest while there are parts
+ * left; if the scheduler starts no helper, the calling thread runs all of them. So no part ever waits for a
+ * slot held by the operation it belongs to.
+ */
+final class ParallelTaskRunner<V> {
+
+    private static final String TAG = ParallelTaskRunner.class.getSimpleName();
+
+    private final List<? extends Callable<V>> mTasks;
+    private final Object[] mResults;
+    private final AtomicInteger mNextTask = new AtomicInteger(0);
+    private final AtomicReference<Exception> mFirstFailure = new AtomicReference<>();
+
+    // guarded by 'this'
+    private int mRunningHelpers = 0;
+    private boolean mFinished = false;
+
+    private ParallelTaskRunner(List<? extends Callable<V>> tasks) {
+        mTasks = tasks;
+        mResults = new Object[tasks.size()];
+    }
+
+    /**
+     * Runs tasks with up to 'parallelism' of them at the same time, and waits for all of them. Once a task fails,
+     * no more are started.
+     *
+     * @param scheduler       Scheduler running the helpers.
+     * @param accountName     Name of the account the tasks work on; empty if unknown.
+     * @param requestPriority Class of traffic of the tasks.
+     * @param priority        Priority of the tasks inside their class.
+     * @param parallelism     Maximum number of tasks running at the same time, including the calling thread.
+     * @param tasks           Tasks to run.
+     * @return Results of the tasks, in the same order.
+     * @throws Exception First exception thrown by a task.
+     */
+    static <V> List<V> invokeAll(OperationScheduler scheduler, String accountName, RequestPriority requestPriority,
+                                 int priority, int parallelism, List<? extends Callable<V>> tasks)
+            throws Exception {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism MUST BE one or greater");
+        }
+        if (tasks.isEmpty()) {
+            return Collections.emptyList();
+        }
+        ParallelTaskRunner<V> runner = new ParallelTaskRunner<>(tasks);
+
+        int helpers = Math.min(parallelism, tasks.size()) - 1;
+        for (int i = 0; i < helpers; i++) {
+            try {
+                scheduler.schedule(accountName, requestPriority, priority, runner::runAsHelper);
+            } catch (RejectedExecutionException e) {
+                // the calling thread still runs the tasks left
+                Log_OC.d(TAG, "Running tasks with " + i + " helpers: " + e.getMessage());
+                break;
+            }
+        }
+
+        runner.runTasks();
+        runner.awaitHelpers();
+
+        if (runner.mFirstFailure.get() != null) {
+            throw runner.mFirstFailure.get();
+        }
+        List<V> results = new ArrayList<>(tasks.size());
+        for (Object result : runner.mResults) {
+            @SuppressWarnings("unchecked")
+            V typedResult = (V) result;
+            results.add(typedResult);
+        }
+        return results;
+    }
+
+    private void runTasks() {
+        int taskIndex;
+        while (mFirstFailure.get() == null && (taskIndex = mNextTask.getAndIncrement()) < mTasks.size()) {
+            try {
+                mResults[taskIndex] = mTasks.get(taskIndex).call();
+            } catch (Exception e) {
+                mFirstFailure.compareAndSet(null, e);
+            }
+        }
+    }
+
+    private void runAsHelper() {
+        synchronized (this) {
+            if (mFinished) {
+                // started too late, every task is done
+                return;
+            }
+            mRunningHelpers++;
+        }
+        try {
+            runTasks();
+        } finally {
+            synchronized (this) {
+                mRunningHelpers--;
+                notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Waits for the helpers still running their last task, and keeps the rest from starting.
+     */
+    private synchronized void awaitHelpers() {
+        mFinished = true;
+        boolean interrupted = false;
+        while (mRunningHelpers > 0) {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                // the results of the running tasks are needed anyway
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -15,6 +15,11 @@ import com.owncloud.android.lib.common.utils.Log_OC;
 import okhttp3.OkHttpClient;
 
 import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
 
 public abstract class RemoteOperation<T extends Object> implements Runnable {
 
@@ -27,6 +32,16 @@ public abstract class RemoteOperation<T extends Object> implements Runnable {
      */
     public static final String OCS_API_HEADER_VALUE = "true";
     private static final String TAG = RemoteOperation.class.getSimpleName();
+
+    /**
+     * Priority of the operations unless {@link #setPriority(int)} is called
+     */
+    public static final int PRIORITY_DEFAULT = 0;
+
+    /**
+     * Scheduler running the asynchronous operations
+     */
+    private static OperationScheduler sOperationScheduler;
     /**
      * ownCloud account in the remote ownCloud server to operate
      */
@@ -57,11 +72,24 @@ public abstract class RemoteOperation<T extends Object> implements Runnable {
      */
     protected Handler mListenerHandler = null;
 
+    /**
+     * Priority of the operation for the {@link OperationScheduler} when executed asynchronously
+     */
+    private int mPriority = PRIORITY_DEFAULT;
+
+    /**
+     * Class of traffic of the operation; NULL to use {@link #getDefaultRequestPriority()}
+     */
+    private RequestPriority mRequestPriority = null;
+
     /**
      * Asynchronously executes the remote operation
      * <p>
      * This method should be used whenever an ownCloud account is available,
      * instead of {@link #execute(OwnCloudClient, OnRemoteOperationListener, Handler))}.
+     * <p>
+     * The operation runs in a new thread, out of the {@link OperationScheduler}; use
+     * {@link #executeAsync(Account, Context, OnRemoteOperationListener, Handler)} to have it scheduled.
      *
      * @param account         ownCloud account in remote ownCloud server to reach during the
      *                        execution of the operation.
@@ -74,22 +102,7 @@ public abstract class RemoteOperation<T extends Object> implements Runnable {
     public Thread execute(Account account, Context context,
                           OnRemoteOperationListener listener, Handler listenerHandler) {
 
-        if (account == null) {
-            throw new IllegalArgumentException
-                    ("Trying to execute a remote operation with a NULL Account");
-        }
-        if (context == null) {
-            throw new IllegalArgumentException
-                    ("Trying to execute a remote operation with a NULL Context");
-        }
-        // mAccount and mContext in the runnerThread to create below
-        mAccount = account;
-        mContext = context.getApplicationContext();
-        mClient = null;     // the client instance will be created from
-
-        mListener = listener;
-
-        mListenerHandler = listenerHandler;
+        prepareAsync(account, context, listener, listenerHandler);
 
         Thread runnerThread = new Thread(this);
         runnerThread.start();
@@ -98,6 +111,9 @@ public abstract class RemoteOperation<T extends Object> implements Runnable {
 
     /**
      * Asynchronously executes the remote operation
+     * <p>
+     * The operation runs in a new thread, out of the {@link OperationScheduler}; use
+     * {@link #executeAsync(OwnCloudClient, OnRemoteOperationListener, Handler)} to have it scheduled.
      *
      * @param client          Client object to reach an ownCloud server
      *                        during the execution of the operation.
@@ -108,6 +124,106 @@ public abstract class RemoteOperation<T extends Object> implements Runnable {
      */
     public Thread execute(OwnCloudClient client,
                           OnRemoteOperationListener listener, Handler listenerHandler) {
+        if (listener == null) {
+            throw new IllegalArgumentException
+                    ("Trying to execute a remote operation asynchronously " +
+                            "without a listener to notiy the result");
+        }
+        prepareAsync(client, listener, listenerHandler);
+
+        Thread runnerThread = new Thread(this);
+        runnerThread.start();
+        return runnerThread;
+    }
+
+    /**
+     * Asynchronously executes the remote operation, scheduled by the current {@link OperationScheduler}.
+     * <p>
+     * This method should be used whenever an ownCloud account is available, instead of
+     * {@link #executeAsync(OwnCloudClient)}.
+     *
+     * @param account ownCloud account in remote ownCloud server to reach during the
+     *                execution of the operation.
+     * @param context Android context for the component calling the method.
+     * @return Future result of the operation.
+     */
+    public Future<RemoteOperationResult<T>> executeAsync(Account account, Context context) {
+        return executeAsync(account, context, null, null);
+    }
+
+    /**
+     * Asynchronously executes the remote operation, scheduled by the current {@link OperationScheduler}, and
+     * notifies the result to a listener.
+     * <p>
+     * This method should be used whenever an ownCloud account is available, instead of
+     * {@link #executeAsync(OwnCloudClient, OnRemoteOperationListener, Handler)}.
+     *
+     * @param account         ownCloud account in remote ownCloud server to reach during the
+     *                        execution of the operation.
+     * @param context         Android context for the component calling the method.
+     * @param listener        Listener to be notified about the execution of the operation, or NULL.
+     * @param listenerHandler Handler associated to the thread where the methods of the listener
+     *                        objects must be called.
+     * @return Future result of the operation.
+     */
+    public Future<RemoteOperationResult<T>> executeAsync(Account account, Context context,
+                                                         OnRemoteOperationListener listener,
+                                                         Handler listenerHandler) {
+        prepareAsync(account, context, listener, listenerHandler);
+        return submitAsync();
+    }
+
+    /**
+     * Asynchronously executes the remote operation, scheduled by the current {@link OperationScheduler}.
+     *
+     * @param client Client object to reach an ownCloud server during the execution of
+     *               the operation.
+     * @return Future result of the operation.
+     */
+    public Future<RemoteOperationResult<T>> executeAsync(OwnCloudClient client) {
+        return executeAsync(client, null, null);
+    }
+
+    /**
+     * Asynchronously executes the remote operation, scheduled by the current {@link OperationScheduler}, and
+     * notifies the result to a listener.
+     *
+     * @param client          Client object to reach an ownCloud server during the execution of
+     *                        the operation.
+     * @param listener        Listener to be notified about the execution of the operation, or NULL.
+     * @param listenerHandler Handler, if passed in, associated to the thread where the methods of
+     *                        the listener objects must be called.
+     * @return Future result of the operation.
+     */
+    public Future<RemoteOperationResult<T>> executeAsync(OwnCloudClient client,
+                                                         OnRemoteOperationListener listener,
+                                                         Handler listenerHandler) {
+        prepareAsync(client, listener, listenerHandler);
+        return submitAsync();
+    }
+
+    private void prepareAsync(Account account, Context context,
+                              OnRemoteOperationListener listener, Handler listenerHandler) {
+        if (account == null) {
+            throw new IllegalArgumentException
+                    ("Trying to execute a remote operation with a NULL Account");
+        }
+        if (context == null) {
+            throw new IllegalArgumentException
+                    ("Trying to execute a remote operation with a NULL Context");
+        }
+        // mAccount and mContext for the asynchronous task to create below
+        mAccount = account;
+        mContext = context.getApplicationContext();
+        mClient = null;     // the client instance will be created from
+
+        mListener = listener;
+
+        mListenerHandler = listenerHandler;
+    }
+
+    private void prepareAsync(OwnCloudClient client,
+                              OnRemoteOperationListener listener, Handler listenerHandler) {
         if (client == null) {
             throw new IllegalArgumentException
                     ("Trying to execute a remote operation with a NULL OwnCloudClient");
@@ -118,20 +234,122 @@ public abstract class RemoteOperation<T extends Object> implements Runnable {
         }
         mContext = client.getContext();
 
-        if (listener == null) {
-            throw new IllegalArgumentException
-                    ("Trying to execute a remote operation asynchronously " +
-                            "without a listener to notiy the result");
-        }
         mListener = listener;
 
         if (listenerHandler != null) {
             mListenerHandler = listenerHandler;
         }
+    }
 
-        Thread runnerThread = new Thread(this);
-        runnerThread.start();
-        return runnerThread;
+    /**
+     * Hands the operation to the current {@link OperationScheduler}. If the scheduler rejects it, the operation
+     * finishes right away with a result containing the rejection.
+     */
+    private Future<RemoteOperationResult<T>> submitAsync() {
+        FutureTask<RemoteOperationResult<T>> futureResult = new FutureTask<>(this::runAndNotify);
+        try {
+            getOperationScheduler().schedule(
+                    getSchedulingAccountName(),
+                    getRequestPriority(),
+                    mPriority,
+                    futureResult
+            );
+
+        } catch (RejectedExecutionException e) {
+            Log_OC.w(TAG, "Operation rejected by the scheduler: " + e.getMessage());
+            final RemoteOperationResult<T> rejectedResult = new RemoteOperationResult<>(e);
+            futureResult = new FutureTask<>(() -> notifyResult(rejectedResult));
+            futureResult.run();
+        }
+        return futureResult;
+    }
+
+    private String getSchedulingAccountName() {
+        if (mAccount != null) {
+            return mAccount.name;
+        }
+        if (mClient != null && mClient.getAccount() != null && mClient.getAccount().getName() != null) {
+            return mClient.getAccount().getName();
+        }
+        return "";
+    }
+
+    /**
+     * Runs parts of this operation in parallel, e.g. from {@link #run(OwnCloudClient)}. Parts are run by the
+     * calling thread and by helpers scheduled in the current {@link OperationScheduler} with the account and
+     * priorities of this operation, so they count toward the limits of the scheduler.
+     *
+     * @param parallelism Maximum number of parts running at the same time, including the calling thread.
+     * @param tasks       Parts to run; once one fails, no more are started.
+     * @return Results of the parts, in the same order.
+     * @throws Exception First exception thrown by a part.
+     */
+    protected <V> List<V> runInParallel(int parallelism, List<? extends Callable<V>> tasks) throws Exception {
+        return ParallelTaskRunner.invokeAll(
+                getOperationScheduler(),
+                getSchedulingAccountName(),
+                getRequestPriority(),
+                mPriority,
+                parallelism,
+                tasks
+        );
+    }
+
+    public static synchronized OperationScheduler getOperationScheduler() {
+        if (sOperationScheduler == null) {
+            sOperationScheduler = new BoundedOperationScheduler();
+        }
+        return sOperationScheduler;
+    }
+
+    /**
+     * Replaces the scheduler of the asynchronous operations. Operations already scheduled are not affected.
+     *
+     * @param operationScheduler Scheduler for the operations executed asynchronously from now on
+     */
+    public static synchronized void setOperationScheduler(OperationScheduler operationScheduler) {
+        if (operationScheduler == null) {
+            throw new IllegalArgumentException("Operation scheduler cannot be NULL");
+        }
+        sOperationScheduler = operationScheduler;
+    }
+
+    public int getPriority() {
+        return mPriority;
+    }
+
+    /**
+     * Sets the priority of the operation when executed asynchronously; inside its {@link RequestPriority}, operations
+     * with higher priority are run first by schedulers supporting it.
+     *
+     * @param priority Priority of the operation
+     */
+    public void setPriority(int priority) {
+        mPriority = priority;
+    }
+
+    public RequestPriority getRequestPriority() {
+        return (mRequestPriority != null) ? mRequestPriority : getDefaultRequestPriority();
+    }
+
+    /**
+     * Sets the class of traffic of the operation when executed asynchronously, overriding the default one of the
+     * operation.
+     *
+     * @param requestPriority Class of traffic of the operation
+     */
+    public void setRequestPriority(RequestPriority requestPriority) {
+        mRequestPriority = requestPriority;
+    }
+
+    /**
+     * Class of traffic of the operation unless {@link #setRequestPriority(RequestPriority)} is called. Operations
+     * the user usually waits for, or transferring file contents, override it.
+     *
+     * @return Default class of traffic of the operation
+     */
+    protected RequestPriority getDefaultRequestPriority() {
+        return RequestPriority.BACKGROUND;
     }
 
     protected void grantOwnCloudClient() throws
@@ -266,19 +484,27 @@ public abstract class RemoteOperation<T extends Object> implements Runnable {
      */
     @Override
     public final void run() {
+        runAndNotify();
+    }
 
-        final RemoteOperationResult resultToSend = runOperation();
+    private RemoteOperationResult<T> runAndNotify() {
+        final RemoteOperationResult<T> resultToSend = runOperation();
 
         if (mAccount != null && mContext != null) {
             // Save Client Cookies
             AccountUtils.saveClient(mClient, mAccount, mContext);
         }
 
+        return notifyResult(resultToSend);
+    }
+
+    private RemoteOperationResult<T> notifyResult(final RemoteOperationResult<T> resultToSend) {
         if (mListenerHandler != null && mListener != null) {
             mListenerHandler.post(() ->
                     mListener.onRemoteOperationFinish(RemoteOperation.this, resultToSend));
         } else if (mListener != null) {
             mListener.onRemoteOperationFinish(RemoteOperation.this, resultToSend);
         }
+        return resultToSend;
     }
 }
\ No newline at end of file
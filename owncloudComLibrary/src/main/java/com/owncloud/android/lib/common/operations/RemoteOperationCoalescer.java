@@ -0,0 +1,159 @@
+/* ownCloud Android Library is available under MIT license
+ *   Copyright (C) 2019 ownCloud GmbH.
+ *
+ *   Permission is hereby granted, free of charge, to any person obtaining a copy
+ *   of this software and associated documentation files (the "Software"), to deal
+ *   in the Software without restriction, including without limitation the rights
+ *   to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *   copies of the Software, and to permit persons to whom the Software is
+ *   furnished to do so, subject to the following conditions:
+ *
+ *   The above copyright notice and this permission notice shall be included in
+ *   all copies or substantial portions of the Software.
+ *
+ *   THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ *   EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ *   MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ *   NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ *   BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN
+ *   ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ *   CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *   THE SOFTWARE.
+ *
+ */
+
+package com.owncloud.android.lib.common.operations;
+
+import com.owncloud.android.lib.common.OwnCloudClient;
+import com.owncloud.android.lib.common.authentication.OwnCloudCredentials;
+import com.owncloud.android.lib.common.utils.Log_OC;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Joins identical read requests running at the same time, so only one of them reaches the server.
+ * <p>
+ * The first caller with a given key runs the request in its own thread; the ones arriving with the same key
+ * while it is in flight wait for it; every caller, the first one too, gets its own copy of the
+ * {@link RemoteOperationResult}. The data in the result is shared by all of them, so it must not be modified. Once the request finishes, the next caller with the
+ * key runs a new one.
+ * <p>
+ * Only requests without side effects on the server may be coalesced.
+ */
+public final class RemoteOperationCoalescer {
+
+    private static final String TAG = RemoteOperationCoalescer.class.getSimpleName();
+
+    private static final char KEY_SEPARATOR = '\n';
+
+    private static final ConcurrentMap<String, FutureTask<?>> sInFlight = new ConcurrentHashMap<>();
+
+    private static final AtomicLong sCoalescedRequests = new AtomicLong();
+
+    private static volatile boolean sEnabled = true;
+
+    private RemoteOperationCoalescer() {
+    }
+
+    /**
+     * Builds the key identifying a request.
+     *
+     * @param client Client the request is run with; identifies the account.
+     * @param method HTTP method of the request.
+     * @param url    Full URL of the request.
+     * @param body   Body of the request, or any string identifying it; NULL if no body.
+     * @return Key to pass to {@link #execute(String, Callable)}.
+     */
+    public static String buildKey(OwnCloudClient client, String method, String url, String body) {
+        OwnCloudCredentials credentials = client.getCredentials();
+        String username = (credentials != null) ? credentials.getUsername() : null;
+        return String.valueOf(username) + KEY_SEPARATOR + method + KEY_SEPARATOR + url + KEY_SEPARATOR +
+                ((body != null) ? body : "");
+    }
+
+    /**
+     * Runs a request, or waits for the identical one already in flight.
+     *
+     * @param key     Key of the request, as built by {@link #buildKey(OwnCloudClient, String, String, String)}.
+     * @param request Request to run when there is none in flight with the same key; must not throw.
+     * @return Result of the request run by this or another caller.
+     */
+    public static <T> RemoteOperationResult<T> execute(String key, Callable<RemoteOperationResult<T>> request) {
+        if (!sEnabled) {
+            return call(request);
+        }
+
+        FutureTask<RemoteOperationResult<T>> ownFlight = new FutureTask<>(() -> call(request));
+        @SuppressWarnings("unchecked")
+        FutureTask<RemoteOperationResult<T>> inFlight =
+                (FutureTask<RemoteOperationResult<T>>) sInFlight.putIfAbsent(key, ownFlight);
+
+        if (inFlight == null) {
+            try {
+                ownFlight.run();
+            } finally {
+                sInFlight.remove(key, ownFlight);
+            }
+            // joiners may be reading the result in the flight while this caller changes its own
+            return copyOf(getResult(ownFlight));
+        }
+
+        sCoalescedRequests.incrementAndGet();
+        Log_OC.d(TAG, "Joining request in flight: " + key.replace(KEY_SEPARATOR, ' '));
+        return copyOf(getResult(inFlight));
+    }
+
+    /**
+     * Enables or disables coalescing; when disabled every request is run on its own.
+     */
+    public static void setEnabled(boolean enabled) {
+        sEnabled = enabled;
+    }
+
+    public static boolean isEnabled() {
+        return sEnabled;
+    }
+
+    /**
+     * @return Number of requests that joined one in flight instead of reaching the server.
+     */
+    public static long getCoalescedRequestsCount() {
+        return sCoalescedRequests.get();
+    }
+
+    private static <T> RemoteOperationResult<T> call(Callable<RemoteOperationResult<T>> request) {
+        try {
+            return request.call();
+        } catch (Exception e) {
+            return new RemoteOperationResult<>(e);
+        }
+    }
+
+    private static <T> RemoteOperationResult<T> copyOf(RemoteOperationResult<T> sharedResult) {
+        RemoteOperationResult<T> result = new RemoteOperationResult<>(sharedResult);
+        result.setData(sharedResult.getData());
+        return result;
+    }
+
+    private static <T> RemoteOperationResult<T> getResult(FutureTask<RemoteOperationResult<T>> flight) {
+        try {
+            return flight.get();
+
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return new RemoteOperationResult<>(e);
+
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw (RuntimeException) cause;
+        }
+    }
+}
@@ -0,0 +1,190 @@
+/* ownCloud Android Library is available under MIT license
+ *   Copyright (C) 2019 ownCloud GmbH.
+ *
+ *   Permission is hereby granted, free of charge, to any person obtaining a copy
+ *   of this software and associated documentation files (the "Software"), to deal
+ *   in the Software without restriction, including without limitation the rights
+ *   to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *   copies of the Software, and to permit persons to whom the Software is
+ *   furnished to do so, subject to the following conditions:
+ *
+ *   The above copyright notice and this permission notice shall be included in
+ *   all copies or substantial portions of the Software.
+ *
+ *   THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ *   EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ *   MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ *   NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ *   BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN
+ *   ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ *   CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *   THE SOFTWARE.
+ *
+ */
+
+package com.owncloud.android.lib.resources.files;
+
+import com.owncloud.android.lib.common.OwnCloudClient;
+import com.owncloud.android.lib.common.http.methods.webdav.DavUtils;
+import com.owncloud.android.lib.common.operations.OperationCancelledException;
+import com.owncloud.android.lib.common.operations.RemoteOperation;
+import com.owncloud.android.lib.common.operations.RemoteOperationResult;
+import com.owncloud.android.lib.common.utils.Log_OC;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static com.owncloud.android.lib.common.operations.RemoteOperationResult.ResultCode.FILE_NOT_FOUND;
+import static com.owncloud.android.lib.common.operations.RemoteOperationResult.ResultCode.OK;
+
+/**
+ * Remote operation checking the existence of many paths in the server with a request per folder, instead of a
+ * request per path.
+ * <p>
+ * Paths are grouped by their parent folder; the folders with several paths to check are listed with a single
+ * Depth-1 PROPFIND, streamed so big folders are not kept in memory, and single paths are checked on their own
+ * with a Depth-0 PROPFIND.
+ * <p>
+ * The result maps every path checked to the current state of the file in the server, with its ETag, length and
+ * size, or to NULL if nothing exists in the path.
+ */
+public class BatchExistenceCheckRemoteOperation extends RemoteOperation<HashMap<String, RemoteFile>> {
+
+    private static final String TAG = BatchExistenceCheckRemoteOperation.class.getSimpleName();
+
+    private final Collection<String> mRemotePaths;
+    private final AtomicBoolean mCancellationRequested = new AtomicBoolean(false);
+
+    /**
+     * @param remotePaths Absolute remote paths to check; folders may end with a separator or not.
+     */
+    public BatchExistenceCheckRemoteOperation(Collection<String> remotePaths) {
+        if (remotePaths == null) {
+            throw new IllegalArgumentException("Parameter 'remotePaths' cannot be NULL");
+        }
+        for (String remotePath : remotePaths) {
+            if (remotePath == null || !remotePath.startsWith(FileUtils.PATH_SEPARATOR)) {
+                throw new IllegalArgumentException("Remote paths MUST BE absolute: " + remotePath);
+            }
+        }
+        mRemotePaths = new ArrayList<>(remotePaths);
+    }
+
+    /**
+     * Stops the check before the next request.
+     */
+    public void cancel() {
+        mCancellationRequested.set(true);
+    }
+
+    @Override
+    protected RemoteOperationResult<HashMap<String, RemoteFile>> run(OwnCloudClient client) {
+        RemoteOperationResult<HashMap<String, RemoteFile>> result;
+        HashMap<String, RemoteFile> existingFiles = new HashMap<>();
+        int requests = 0;
+
+        try {
+            // parent folder -> normalized path -> paths as received
+            Map<String, Map<String, List<String>>> pathsByParent = new LinkedHashMap<>();
+            for (String remotePath : mRemotePaths) {
+                existingFiles.put(remotePath, null);
+                String normalizedPath = normalize(remotePath);
+                Map<String, List<String>> siblings = pathsByParent.get(getParentPath(normalizedPath));
+                if (siblings == null) {
+                    siblings = new HashMap<>();
+                    pathsByParent.put(getParentPath(normalizedPath), siblings);
+                }
+                List<String> samePaths = siblings.get(normalizedPath);
+                if (samePaths == null) {
+                    samePaths = new ArrayList<>(1);
+                    siblings.put(normalizedPath, samePaths);
+                }
+                samePaths.add(remotePath);
+            }
+
+            for (Map.Entry<String, Map<String, List<String>>> group : pathsByParent.entrySet()) {
+                if (mCancellationRequested.get()) {
+                    throw new OperationCancelledException();
+                }
+                final Map<String, List<String>> siblings = group.getValue();
+                RemoteOperationResult<?> groupResult;
+
+                if (siblings.size() == 1) {
+                    String normalizedPath = siblings.keySet().iterator().next();
+                    ReadRemoteFileOperation readFileOperation = new ReadRemoteFileOperation(normalizedPath);
+                    readFileOperation.setPropertiesToRequest(DavUtils.getSyncPropset());
+                    RemoteOperationResult<RemoteFile> fileResult = readFileOperation.execute(client);
+                    if (fileResult.isSuccess()) {
+                        putAll(existingFiles, siblings.get(normalizedPath), fileResult.getData());
+                    }
+                    groupResult = fileResult;
+
+                } else {
+                    ReadRemoteFolderOperation readFolderOperation = new ReadRemoteFolderOperation(
+                            group.getKey(),
+                            remoteFile -> {
+                                List<String> samePaths = siblings.get(normalize(remoteFile.getRemotePath()));
+                                if (samePaths != null) {
+                                    putAll(existingFiles, samePaths, remoteFile);
+                                }
+                            }
+                    );
+                    readFolderOperation.setPropertiesToRequest(DavUtils.getSyncPropset());
+                    RemoteOperationResult<ArrayList<RemoteFile>> folderResult = readFolderOperation.execute(client);
+                    if (folderResult.isSuccess() && siblings.containsKey(group.getKey())) {
+                        // only the root folder is grouped with its own children
+                        putAll(existingFiles, siblings.get(group.getKey()), folderResult.getData().get(0));
+                    }
+                    groupResult = folderResult;
+                }
+                requests++;
+
+                // a missing parent means that none of its paths exist
+                if (!groupResult.isSuccess() && groupResult.getCode() != FILE_NOT_FOUND) {
+                    result = new RemoteOperationResult<>(groupResult);
+                    Log_OC.e(TAG, "Existence check of " + mRemotePaths.size() + " paths failed in " +
+                            group.getKey() + ": " + result.getLogMessage());
+                    return result;
+                }
+            }
+
+            result = new RemoteOperationResult<>(OK);
+            result.setData(existingFiles);
+            Log_OC.d(TAG, "Existence check of " + mRemotePaths.size() + " paths with " + requests + " requests");
+
+        } catch (Exception e) {
+            result = new RemoteOperationResult<>(e);
+            Log_OC.e(TAG, "Existence check of " + mRemotePaths.size() + " paths: " + result.getLogMessage(), e);
+        }
+        return result;
+    }
+
+    private static void putAll(HashMap<String, RemoteFile> existingFiles, List<String> remotePaths,
+                               RemoteFile remoteFile) {
+        for (String remotePath : remotePaths) {
+            existingFiles.put(remotePath, remoteFile);
+        }
+    }
+
+    /**
+     * @return Path without the trailing separator of folders, but for the root folder.
+     */
+    private static String normalize(String remotePath) {
+        if (remotePath.length() > 1 && remotePath.endsWith(FileUtils.PATH_SEPARATOR)) {
+            return remotePath.substring(0, remotePath.length() - 1);
+        }
+        return remotePath;
+    }
+
+    /**
+     * @return Path of the parent folder, ending with a separator; the root folder for itself.
+     */
+    private static String getParentPath(String normalizedPath) {
+        return normalizedPath.substring(0, normalizedPath.lastIndexOf(FileUtils.PATH_SEPARATOR) + 1);
+    }
+}
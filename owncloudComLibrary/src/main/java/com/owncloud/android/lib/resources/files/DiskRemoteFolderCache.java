@@ -0,0 +1,274 @@
+/* ownCloud Android Library is available under MIT license
+ *   Copyright (C) 2019 ownCloud GmbH.
+ *
+ *   Permission is hereby granted, free of charge, to any person obtaining a copy
+ *   of this software and associated documentation files (the "Software"), to deal
+ *   in the Software without restriction, including without limitation the rights
+ *   to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *   copies of the Software, and to permit persons to whom the Software is
+ *   furnished to do so, subject to the following conditions:
+ *
+ *   The above copyright notice and this permission notice shall be included in
+ *   all copies or substantial portions of the Software.
+ *
+ *   THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ *   EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ *   MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ *   NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ *   BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN
+ *   ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ *   CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *   THE SOFTWARE.
+ *
+ */
+
+package com.owncloud.android.lib.resources.files;
+
+import android.util.LruCache;
+
+import com.owncloud.android.lib.common.utils.Log_OC;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+
+/**
+ * {@link RemoteFolderCache} storing every listing in a compact binary file of its own, with the most recently
+ * used ones also kept in memory.
+ * <p>
+ * Files are replaced atomically, so a listing read is always complete; a listing that cannot be read, e.g.
+ * written by a different version of the format, is discarded.
+ * <p>
+ * {@link RemoteFile}s are copied when stored and when returned, so changes made by callers never reach the
+ * listings kept in memory.
+ */
+public class DiskRemoteFolderCache implements RemoteFolderCache {
+
+    private static final String TAG = DiskRemoteFolderCache.class.getSimpleName();
+
+    public static final int DEFAULT_MAX_FILES_IN_MEMORY = 10000;
+
+    private static final int FORMAT_VERSION = 1;
+    private static final String LISTING_EXTENSION = ".listing";
+    private static final String TEMP_EXTENSION = ".tmp";
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final File mDirectory;
+    private final LruCache<String, ArrayList<RemoteFile>> mMemoryCache;
+
+    /**
+     * @param directory Folder to store the listings in; created if it does not exist.
+     */
+    public DiskRemoteFolderCache(File directory) {
+        this(directory, DEFAULT_MAX_FILES_IN_MEMORY);
+    }
+
+    /**
+     * @param directory         Folder to store the listings in; created if it does not exist.
+     * @param maxFilesInMemory  Maximum number of files, summing all the listings, kept in memory; 0 to read
+     *                          every listing from disk.
+     */
+    public DiskRemoteFolderCache(File directory, int maxFilesInMemory) {
+        if (directory == null) {
+            throw new IllegalArgumentException("Parameter 'directory' cannot be NULL");
+        }
+        if (maxFilesInMemory < 0) {
+            throw new IllegalArgumentException("maxFilesInMemory MUST BE zero or greater");
+        }
+        mDirectory = directory;
+        if (!mDirectory.isDirectory() && !mDirectory.mkdirs()) {
+            Log_OC.w(TAG, "Could not create " + mDirectory.getAbsolutePath());
+        }
+        mMemoryCache = (maxFilesInMemory > 0) ?
+                new LruCache<String, ArrayList<RemoteFile>>(maxFilesInMemory) {
+                    @Override
+                    protected int sizeOf(String key, ArrayList<RemoteFile> listing) {
+                        return Math.max(1, listing.size());
+                    }
+                } : null;
+    }
+
+    @Override
+    public ArrayList<RemoteFile> get(String key) {
+        ArrayList<RemoteFile> listing = (mMemoryCache != null) ? mMemoryCache.get(key) : null;
+        if (listing == null) {
+            listing = readListing(key);
+            if (listing != null && mMemoryCache != null) {
+                mMemoryCache.put(key, listing);
+            }
+        }
+        return (listing != null) ? copyOf(listing) : null;
+    }
+
+    @Override
+    public void put(String key, ArrayList<RemoteFile> listing) {
+        ArrayList<RemoteFile> storedListing = copyOf(listing);
+        if (mMemoryCache != null) {
+            mMemoryCache.put(key, storedListing);
+        }
+        writeListing(key, storedListing);
+    }
+
+    @Override
+    public void remove(String key) {
+        if (mMemoryCache != null) {
+            mMemoryCache.remove(key);
+        }
+        File listingFile = getListingFile(key);
+        if (listingFile.exists() && !listingFile.delete()) {
+            Log_OC.w(TAG, "Could not delete " + listingFile.getAbsolutePath());
+        }
+    }
+
+    /**
+     * Forgets all the listings.
+     */
+    public void clear() {
+        if (mMemoryCache != null) {
+            mMemoryCache.evictAll();
+        }
+        File[] files = mDirectory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                if (file.getName().endsWith(LISTING_EXTENSION) || file.getName().endsWith(TEMP_EXTENSION)) {
+                    file.delete();
+                }
+            }
+        }
+    }
+
+    private static ArrayList<RemoteFile> copyOf(ArrayList<RemoteFile> listing) {
+        ArrayList<RemoteFile> copy = new ArrayList<>(listing.size());
+        for (RemoteFile remoteFile : listing) {
+            copy.add(new RemoteFile(remoteFile));
+        }
+        return copy;
+    }
+
+    private ArrayList<RemoteFile> readListing(String key) {
+        File listingFile = getListingFile(key);
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(listingFile), BUFFER_SIZE))) {
+
+            if (in.readInt() != FORMAT_VERSION || !key.equals(in.readUTF())) {
+                return null;
+            }
+            int count = in.readInt();
+            ArrayList<RemoteFile> listing = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                listing.add(readRemoteFile(in));
+            }
+            return listing;
+
+        } catch (FileNotFoundException e) {
+            return null;
+
+        } catch (IOException | RuntimeException e) {
+            Log_OC.w(TAG, "Discarding unreadable listing " + listingFile.getName() + ": " + e.getMessage());
+            listingFile.delete();
+            return null;
+        }
+    }
+
+    private void writeListing(String key, ArrayList<RemoteFile> listing) {
+        File listingFile = getListingFile(key);
+        File tempFile = null;
+        try {
+            tempFile = File.createTempFile(listingFile.getName(), TEMP_EXTENSION, mDirectory);
+            try (DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(new FileOutputStream(tempFile), BUFFER_SIZE))) {
+                out.writeInt(FORMAT_VERSION);
+                out.writeUTF(key);
+                out.writeInt(listing.size());
+                for (RemoteFile remoteFile : listing) {
+                    writeRemoteFile(out, remoteFile);
+                }
+            }
+            if (!tempFile.renameTo(listingFile)) {
+                throw new IOException("Could not rename " + tempFile.getName() + " to " + listingFile.getName());
+            }
+
+        } catch (IOException e) {
+            Log_OC.w(TAG, "Could not store listing " + listingFile.getName() + ": " + e.getMessage());
+            if (tempFile != null) {
+                tempFile.delete();
+            }
+        }
+    }
+
+    private static RemoteFile readRemoteFile(DataInputStream in) throws IOException {
+        RemoteFile remoteFile = new RemoteFile();
+        remoteFile.setRemotePath(readString(in));
+        remoteFile.setMimeType(readString(in));
+        remoteFile.setLength(in.readLong());
+        remoteFile.setCreationTimestamp(in.readLong());
+        remoteFile.setModifiedTimestamp(in.readLong());
+        remoteFile.setEtag(readString(in));
+        remoteFile.setPermissions(readString(in));
+        remoteFile.setRemoteId(readString(in));
+        remoteFile.setSize(in.readLong());
+        String quotaUsedBytes = readString(in);
+        remoteFile.setQuotaUsedBytes((quotaUsedBytes != null) ? new BigDecimal(quotaUsedBytes) : null);
+        String quotaAvailableBytes = readString(in);
+        remoteFile.setQuotaAvailableBytes((quotaAvailableBytes != null) ? new BigDecimal(quotaAvailableBytes) : null);
+        remoteFile.setPrivateLink(readString(in));
+        return remoteFile;
+    }
+
+    private static void writeRemoteFile(DataOutputStream out, RemoteFile remoteFile) throws IOException {
+        writeString(out, remoteFile.getRemotePath());
+        writeString(out, remoteFile.getMimeType());
+        out.writeLong(remoteFile.getLength());
+        out.writeLong(remoteFile.getCreationTimestamp());
+        out.writeLong(remoteFile.getModifiedTimestamp());
+        writeString(out, remoteFile.getEtag());
+        writeString(out, remoteFile.getPermissions());
+        writeString(out, remoteFile.getRemoteId());
+        out.writeLong(remoteFile.getSize());
+        BigDecimal quotaUsedBytes = remoteFile.getQuotaUsedBytes();
+        writeString(out, (quotaUsedBytes != null) ? quotaUsedBytes.toString() : null);
+        BigDecimal quotaAvailableBytes = remoteFile.getQuotaAvailableBytes();
+        writeString(out, (quotaAvailableBytes != null) ? quotaAvailableBytes.toString() : null);
+        writeString(out, remoteFile.getPrivateLink());
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private File getListingFile(String key) {
+        return new File(mDirectory, hash(key) + LISTING_EXTENSION);
+    }
+
+    private static String hash(String key) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-1").digest(key.getBytes("UTF-8"));
+            StringBuilder hex = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return hex.toString();
+
+        } catch (NoSuchAlgorithmException | IOException e) {
+            // every platform supports SHA-1 and UTF-8
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -28,10 +28,12 @@ import com.owncloud.android.lib.common.OwnCloudClient;
 import com.owncloud.android.lib.common.http.HttpConstants;
 import com.owncloud.android.lib.common.http.methods.nonwebdav.GetMethod;
 import com.owncloud.android.lib.common.network.OnDatatransferProgressListener;
+import com.owncloud.android.lib.common.network.ProgressDispatcher;
 import com.owncloud.android.lib.common.network.WebdavUtils;
 import com.owncloud.android.lib.common.operations.OperationCancelledException;
 import com.owncloud.android.lib.common.operations.RemoteOperation;
 import com.owncloud.android.lib.common.operations.RemoteOperationResult;
+import com.owncloud.android.lib.common.operations.RequestPriority;
 import com.owncloud.android.lib.common.utils.Log_OC;
 
 import java.io.BufferedInputStream;
@@ -39,9 +41,8 @@ import java.io.File;
 import java.io.FileOutputStream;
 import java.net.URL;
 import java.util.Date;
-import java.util.HashSet;
-import java.util.Iterator;
 import java.util.Set;
+import java.util.concurrent.CopyOnWriteArraySet;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
@@ -57,7 +58,8 @@ public class DownloadRemoteFileOperation extends RemoteOperation {
     private static final int FORBIDDEN_ERROR = 403;
     private static final int SERVICE_UNAVAILABLE_ERROR = 503;
     private final AtomicBoolean mCancellationRequested = new AtomicBoolean(false);
-    private Set<OnDatatransferProgressListener> mDataTransferListeners = new HashSet<>();
+    private Set<OnDatatransferProgressListener> mDataTransferListeners = new CopyOnWriteArraySet<>();
+    private final ProgressDispatcher mProgressDispatcher = new ProgressDispatcher(mDataTransferListeners);
     private long mModificationTimestamp = 0;
     private String mEtag = "";
     private GetMethod mGet;
@@ -70,6 +72,11 @@ public class DownloadRemoteFileOperation extends RemoteOperation {
         mLocalFolderPath = localFolderPath;
     }
 
+    @Override
+    protected RequestPriority getDefaultRequestPriority() {
+        return RequestPriority.BULK;
+    }
+
     @Override
     protected RemoteOperationResult run(OwnCloudClient client) {
         RemoteOperationResult result;
@@ -100,7 +107,6 @@ public class DownloadRemoteFileOperation extends RemoteOperation {
         int status;
         boolean savedFile = false;
         mGet = new GetMethod(new URL(client.getUserFilesWebDavUri() + WebdavUtils.encodePath(mRemotePath)));
-        Iterator<OnDatatransferProgressListener> it;
 
         FileOutputStream fos = null;
         BufferedInputStream bis = null;
@@ -130,14 +136,11 @@ public class DownloadRemoteFileOperation extends RemoteOperation {
                     }
                     fos.write(bytes, 0, readResult);
                     transferred += readResult;
-                    synchronized (mDataTransferListeners) {
-                        it = mDataTransferListeners.iterator();
-                        while (it.hasNext()) {
-                            it.next().onTransferProgress(readResult, transferred, totalToTransfer,
-                                    targetFile.getName());
-                        }
-                    }
+                    mProgressDispatcher.onTransferProgress(readResult, transferred, totalToTransfer,
+                            targetFile.getName());
                 }
+                // the end is not detected by the dispatcher without Content-Length
+                mProgressDispatcher.finish();
                 if (transferred == totalToTransfer) {  // Check if the file is completed
                     savedFile = true;
                     final String modificationTime =
@@ -197,15 +200,22 @@ public class DownloadRemoteFileOperation extends RemoteOperation {
     }
 
     public void addDatatransferProgressListener(OnDatatransferProgressListener listener) {
-        synchronized (mDataTransferListeners) {
-            mDataTransferListeners.add(listener);
-        }
+        mDataTransferListeners.add(listener);
     }
 
     public void removeDatatransferProgressListener(OnDatatransferProgressListener listener) {
-        synchronized (mDataTransferListeners) {
-            mDataTransferListeners.remove(listener);
-        }
+        mDataTransferListeners.remove(listener);
+    }
+
+    /**
+     * Sets how often the listeners are notified of the progress; by default, every
+     * {@link ProgressDispatcher#DEFAULT_MIN_PERCENT_STEP}% or {@link ProgressDispatcher#DEFAULT_MIN_INTERVAL} ms.
+     *
+     * @param minPercentStep Percentage of the file to transfer between notifications, 0 to ignore it.
+     * @param minInterval    Milliseconds between notifications, 0 to ignore it.
+     */
+    public void setProgressThresholds(int minPercentStep, long minInterval) {
+        mProgressDispatcher.setThresholds(minPercentStep, minInterval);
     }
 
     public void cancel() {
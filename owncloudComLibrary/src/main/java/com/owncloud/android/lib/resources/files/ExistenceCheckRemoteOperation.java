@@ -90,7 +90,7 @@ public class ExistenceCheckRemoteOperation extends RemoteOperation {
             PropfindMethod propfindMethod = new PropfindMethod(
                     new URL(stringUrl),
                     0,
-                    DavUtils.getAllPropset()
+                    DavUtils.getEtagOnlyPropset()
             );
             propfindMethod.setReadTimeout(TIMEOUT, TimeUnit.SECONDS);
             propfindMethod.setConnectionTimeout(TIMEOUT, TimeUnit.SECONDS);
@@ -23,6 +23,7 @@
  */
 package com.owncloud.android.lib.resources.files;
 
+import at.bitfire.dav4android.Property;
 import com.owncloud.android.lib.common.OwnCloudClient;
 import com.owncloud.android.lib.common.accounts.AccountUtils;
 import com.owncloud.android.lib.common.http.HttpConstants;
@@ -31,6 +32,7 @@ import com.owncloud.android.lib.common.http.methods.webdav.PropfindMethod;
 import com.owncloud.android.lib.common.network.WebdavUtils;
 import com.owncloud.android.lib.common.operations.RemoteOperation;
 import com.owncloud.android.lib.common.operations.RemoteOperationResult;
+import com.owncloud.android.lib.common.operations.RequestPriority;
 import com.owncloud.android.lib.common.utils.Log_OC;
 
 import java.net.URL;
@@ -54,6 +56,7 @@ public class ReadRemoteFileOperation extends RemoteOperation<RemoteFile> {
     private static final int SYNC_CONNECTION_TIMEOUT = 5000;
 
     private String mRemotePath;
+    private Property.Name[] mPropertiesToRequest = DavUtils.getAllPropset();
 
     /**
      * Constructor
@@ -64,6 +67,21 @@ public class ReadRemoteFileOperation extends RemoteOperation<RemoteFile> {
         mRemotePath = remotePath;
     }
 
+    /**
+     * Sets the properties to request for the file; see {@link DavUtils}.
+     * {@link DavUtils.Propset#FULL} by default.
+     *
+     * @param propertiesToRequest Properties to request
+     */
+    public void setPropertiesToRequest(Property.Name[] propertiesToRequest) {
+        mPropertiesToRequest = (propertiesToRequest != null) ? propertiesToRequest : DavUtils.getAllPropset();
+    }
+
+    @Override
+    protected RequestPriority getDefaultRequestPriority() {
+        return RequestPriority.INTERACTIVE;
+    }
+
     /**
      * Performs the read operation.
      *
@@ -79,7 +97,7 @@ public class ReadRemoteFileOperation extends RemoteOperation<RemoteFile> {
             // remote request
             propfind = new PropfindMethod(new URL(client.getUserFilesWebDavUri() + WebdavUtils.encodePath(mRemotePath)),
                     DEPTH_0,
-                    DavUtils.getAllPropset());
+                    mPropertiesToRequest);
 
             propfind.setReadTimeout(SYNC_READ_TIMEOUT, TimeUnit.SECONDS);
             propfind.setConnectionTimeout(SYNC_CONNECTION_TIMEOUT, TimeUnit.SECONDS);
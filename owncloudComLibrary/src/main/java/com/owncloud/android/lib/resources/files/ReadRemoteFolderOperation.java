@@ -24,16 +24,20 @@
 
 package com.owncloud.android.lib.resources.files;
 
+import at.bitfire.dav4android.Property;
 import at.bitfire.dav4android.Response;
 import com.owncloud.android.lib.common.OwnCloudClient;
 import com.owncloud.android.lib.common.accounts.AccountUtils;
 import com.owncloud.android.lib.common.http.HttpConstants;
+import com.owncloud.android.lib.common.http.RetryPolicy;
 import com.owncloud.android.lib.common.http.methods.webdav.DavConstants;
 import com.owncloud.android.lib.common.http.methods.webdav.DavUtils;
 import com.owncloud.android.lib.common.http.methods.webdav.PropfindMethod;
 import com.owncloud.android.lib.common.network.WebdavUtils;
 import com.owncloud.android.lib.common.operations.RemoteOperation;
+import com.owncloud.android.lib.common.operations.RemoteOperationCoalescer;
 import com.owncloud.android.lib.common.operations.RemoteOperationResult;
+import com.owncloud.android.lib.common.operations.RequestPriority;
 import com.owncloud.android.lib.common.utils.Log_OC;
 
 import java.net.URL;
@@ -53,7 +57,13 @@ public class ReadRemoteFolderOperation extends RemoteOperation<ArrayList<RemoteF
 
     private static final String TAG = ReadRemoteFolderOperation.class.getSimpleName();
 
+    private static final String PROPFIND_METHOD = "PROPFIND";
+    private static final String PROPFIND_DEPTH = "depth=1;";
+
     private String mRemotePath;
+    private OnRemoteFileListener mRemoteFileListener;
+    private Property.Name[] mPropertiesToRequest = DavUtils.getAllPropset();
+    private RemoteFolderCache mFolderCache = null;
 
     /**
      * Constructor
@@ -64,6 +74,45 @@ public class ReadRemoteFolderOperation extends RemoteOperation<ArrayList<RemoteF
         mRemotePath = remotePath;
     }
 
+    /**
+     * Constructor for streaming mode: the files in the folder are delivered to a listener while the response of
+     * the server is read, and the result only contains the folder itself. Memory used does not depend on the
+     * number of files in the folder.
+     *
+     * @param remotePath         Remote path of the folder.
+     * @param remoteFileListener Listener to notify, in the thread running the operation, every file in the folder.
+     */
+    public ReadRemoteFolderOperation(String remotePath, OnRemoteFileListener remoteFileListener) {
+        mRemotePath = remotePath;
+        mRemoteFileListener = remoteFileListener;
+    }
+
+    /**
+     * Sets the properties to request for the folder and its files; see {@link DavUtils}.
+     * {@link DavUtils.Propset#FULL} by default.
+     *
+     * @param propertiesToRequest Properties to request
+     */
+    public void setPropertiesToRequest(Property.Name[] propertiesToRequest) {
+        mPropertiesToRequest = (propertiesToRequest != null) ? propertiesToRequest : DavUtils.getAllPropset();
+    }
+
+    /**
+     * Sets a store to keep the listing in. When a listing of the folder is stored, the ETag of the folder is
+     * checked with a request for that property only, and the stored listing is returned if it did not change.
+     * In streaming mode stored listings are served, but new ones are not stored.
+     *
+     * @param folderCache Store of listings; NULL to always read the full listing from the server.
+     */
+    public void setFolderCache(RemoteFolderCache folderCache) {
+        mFolderCache = folderCache;
+    }
+
+    @Override
+    protected RequestPriority getDefaultRequestPriority() {
+        return RequestPriority.INTERACTIVE;
+    }
+
     /**
      * Performs the read operation.
      *
@@ -71,29 +120,139 @@ public class ReadRemoteFolderOperation extends RemoteOperation<ArrayList<RemoteF
      */
     @Override
     protected RemoteOperationResult<ArrayList<RemoteFile>> run(OwnCloudClient client) {
+        String url;
+        String key;
+        try {
+            url = client.getUserFilesWebDavUri() + WebdavUtils.encodePath(mRemotePath);
+            key = RemoteOperationCoalescer.buildKey(
+                    client,
+                    PROPFIND_METHOD,
+                    url,
+                    PROPFIND_DEPTH + DavUtils.getPropsetKey(mPropertiesToRequest)
+            );
+        } catch (Exception e) {
+            RemoteOperationResult<ArrayList<RemoteFile>> result = new RemoteOperationResult<>(e);
+            Log_OC.e(TAG, "Synchronized " + mRemotePath + ": " + result.getLogMessage(), e);
+            return result;
+        }
+
+        if (mFolderCache != null) {
+            RemoteOperationResult<ArrayList<RemoteFile>> cachedResult = readFromCache(client, url, key);
+            if (cachedResult != null) {
+                return cachedResult;
+            }
+        }
+
+        if (mRemoteFileListener != null) {
+            // every caller needs its own stream of files
+            return readRemoteFolder(client, url);
+        }
+
+        RemoteOperationResult<ArrayList<RemoteFile>> result = RemoteOperationCoalescer.execute(
+                key,
+                () -> readRemoteFolder(client, url)
+        );
+
+        // the result is this caller's own, but the list is shared with other callers reading the same folder
+        if (result.getData() != null) {
+            result.setData(new ArrayList<>(result.getData()));
+            if (mFolderCache != null && result.isSuccess()) {
+                mFolderCache.put(key, result.getData());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the stored listing of the folder if its ETag did not change in the server.
+     *
+     * @return Result with the stored listing, result of the failed check if the folder does not exist anymore,
+     * or NULL if the full listing needs to be read.
+     */
+    private RemoteOperationResult<ArrayList<RemoteFile>> readFromCache(OwnCloudClient client, String url,
+                                                                       String key) {
+        ArrayList<RemoteFile> cachedListing = mFolderCache.get(key);
+        if (cachedListing == null || cachedListing.isEmpty() || cachedListing.get(0).getEtag() == null) {
+            return null;
+        }
+
+        try {
+            PropfindMethod propfindMethod = new PropfindMethod(
+                    new URL(url),
+                    DavConstants.DEPTH_0,
+                    DavUtils.getEtagOnlyPropset());
+            propfindMethod.setFollowRedirects(true);
+
+            int status = client.executeHttpMethod(propfindMethod);
+
+            if (isSuccess(status)) {
+                RemoteFile folder = new RemoteFile(
+                        propfindMethod.getRoot(),
+                        AccountUtils.getUserId(mAccount, mContext)
+                );
+                if (!cachedListing.get(0).getEtag().equals(folder.getEtag())) {
+                    return null;
+                }
+
+                RemoteOperationResult<ArrayList<RemoteFile>> result = new RemoteOperationResult<>(OK);
+                if (mRemoteFileListener != null) {
+                    for (RemoteFile file : cachedListing.subList(1, cachedListing.size())) {
+                        mRemoteFileListener.onRemoteFile(file);
+                    }
+                    ArrayList<RemoteFile> folderOnly = new ArrayList<>();
+                    folderOnly.add(cachedListing.get(0));
+                    result.setData(folderOnly);
+                } else {
+                    result.setData(cachedListing);
+                }
+                Log_OC.d(TAG, "Folder " + mRemotePath + " not changed, served from cache");
+                return result;
+
+            } else if (status == HttpConstants.HTTP_NOT_FOUND) {
+                mFolderCache.remove(key);
+                return new RemoteOperationResult<>(propfindMethod);
+            }
+
+        } catch (Exception e) {
+            Log_OC.w(TAG, "Could not check the ETag of " + mRemotePath + ": " + e.getMessage());
+        }
+        return null;
+    }
+
+    private RemoteOperationResult<ArrayList<RemoteFile>> readRemoteFolder(OwnCloudClient client, String url) {
         RemoteOperationResult<ArrayList<RemoteFile>> result = null;
 
         try {
             PropfindMethod propfindMethod = new PropfindMethod(
-                    new URL(client.getUserFilesWebDavUri() + WebdavUtils.encodePath(mRemotePath)),
+                    new URL(url),
                     DavConstants.DEPTH_1,
-                    DavUtils.getAllPropset());
+                    mPropertiesToRequest);
 
-            client.setFollowRedirects(true);
+            // resolved once; getting it from the account manager for every file is expensive
+            final String userId = AccountUtils.getUserId(mAccount, mContext);
+
+            if (mRemoteFileListener != null) {
+                propfindMethod.setMemberListener(member ->
+                        mRemoteFileListener.onRemoteFile(new RemoteFile(member, userId))
+                );
+                // a repeated request would deliver the files already notified again
+                propfindMethod.setRetryPolicy(RetryPolicy.NONE);
+            }
+
+            // set in the method, as the client may be reading other folders at the same time
+            propfindMethod.setFollowRedirects(true);
 
             int status = client.executeHttpMethod(propfindMethod);
 
             if (isSuccess(status)) {
-                ArrayList<RemoteFile> mFolderAndFiles = new ArrayList<>();
+                ArrayList<RemoteFile> mFolderAndFiles = new ArrayList<>(propfindMethod.getMembers().size() + 1);
 
                 // parse data from remote folder
-                mFolderAndFiles.add(
-                        new RemoteFile(propfindMethod.getRoot(), AccountUtils.getUserId(mAccount, mContext))
-                );
+                mFolderAndFiles.add(new RemoteFile(propfindMethod.getRoot(), userId));
 
-                // loop to update every child
+                // loop to update every child; none if they were streamed to the listener
                 for (Response resource : propfindMethod.getMembers()) {
-                    RemoteFile file = new RemoteFile(resource, AccountUtils.getUserId(mAccount, mContext));
+                    RemoteFile file = new RemoteFile(resource, userId);
                     mFolderAndFiles.add(file);
                 }
 
@@ -0,0 +1,250 @@
+/* ownCloud Android Library is available under MIT license
+ *   Copyright (C) 2019 ownCloud GmbH.
+ *
+ *   Permission is hereby granted, free of charge, to any person obtaining a copy
+ *   of this software and associated documentation files (the "Software"), to deal
+ *   in the Software without restriction, including without limitation the rights
+ *   to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *   copies of the Software, and to permit persons to whom the Software is
+ *   furnished to do so, subject to the following conditions:
+ *
+ *   The above copyright notice and this permission notice shall be included in
+ *   all copies or substantial portions of the Software.
+ *
+ *   THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ *   EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ *   MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ *   NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ *   BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN
+ *   ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ *   CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *   THE SOFTWARE.
+ *
+ */
+
+package com.owncloud.android.lib.resources.files;
+
+import at.bitfire.dav4android.Property;
+import com.owncloud.android.lib.common.OwnCloudClient;
+import com.owncloud.android.lib.common.http.methods.webdav.DavUtils;
+import com.owncloud.android.lib.common.operations.OperationCancelledException;
+import com.owncloud.android.lib.common.operations.RemoteOperation;
+import com.owncloud.android.lib.common.operations.RemoteOperationResult;
+import com.owncloud.android.lib.common.utils.Log_OC;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static com.owncloud.android.lib.common.operations.RemoteOperationResult.ResultCode.OK;
+
+/**
+ * Remote operation finding the changes in a subtree of the ownCloud server since a previous snapshot of it.
+ * <p>
+ * ownCloud changes the ETag of a folder whenever anything below it changes, so only the folders with a new ETag
+ * need to be listed: the root folder is checked with a Depth-0 PROPFIND requesting only its ETag, and every folder
+ * that changed is listed with a Depth-1 PROPFIND. Unchanged subtrees cost no requests.
+ * <p>
+ * The snapshot maps the remote paths of the known files and folders, as returned by
+ * {@link RemoteFile#getRemotePath()}, to their ETags; it must include the root folder. The result contains the
+ * changes found; folders removed are reported once, not together with their contents. Applying every change to
+ * the snapshot brings it up to date.
+ */
+public class ReadRemoteTreeChangesOperation extends RemoteOperation<ArrayList<RemoteFileChange>> {
+
+    private static final String TAG = ReadRemoteTreeChangesOperation.class.getSimpleName();
+
+    /**
+     * Receives the changes found, while the subtree is walked.
+     */
+    public interface OnRemoteFileChangeListener {
+        void onRemoteFileChange(RemoteFileChange change);
+    }
+
+    private final String mRemotePath;
+    private final Map<String, String> mKnownEtags;
+    private OnRemoteFileChangeListener mChangeListener = null;
+    private Property.Name[] mPropertiesToRequest = DavUtils.getAllPropset();
+    private final AtomicBoolean mCancellationRequested = new AtomicBoolean(false);
+
+    /**
+     * @param remotePath Remote path of the root folder of the subtree.
+     * @param knownEtags Snapshot of the subtree: remote path of every known file and folder to its ETag.
+     */
+    public ReadRemoteTreeChangesOperation(String remotePath, Map<String, String> knownEtags) {
+        if (knownEtags == null) {
+            throw new IllegalArgumentException("Parameter 'knownEtags' cannot be NULL");
+        }
+        mRemotePath = remotePath;
+        mKnownEtags = knownEtags;
+    }
+
+    /**
+     * Streams the changes to a listener, in the thread running the operation, instead of returning them in the
+     * result.
+     */
+    public void setChangeListener(OnRemoteFileChangeListener changeListener) {
+        mChangeListener = changeListener;
+    }
+
+    /**
+     * Sets the properties to request for the files and folders changed; see {@link DavUtils}.
+     * {@link DavUtils.Propset#FULL} by default.
+     *
+     * @param propertiesToRequest Properties to request
+     */
+    public void setPropertiesToRequest(Property.Name[] propertiesToRequest) {
+        mPropertiesToRequest = (propertiesToRequest != null) ? propertiesToRequest : DavUtils.getAllPropset();
+    }
+
+    /**
+     * Stops the walk before listing the next folder.
+     */
+    public void cancel() {
+        mCancellationRequested.set(true);
+    }
+
+    @Override
+    protected RemoteOperationResult<ArrayList<RemoteFileChange>> run(OwnCloudClient client) {
+        RemoteOperationResult<ArrayList<RemoteFileChange>> result;
+        ArrayList<RemoteFileChange> changes = new ArrayList<>();
+        int foldersListed = 0;
+
+        try {
+            ReadRemoteFileOperation readRootOperation = new ReadRemoteFileOperation(mRemotePath);
+            readRootOperation.setPropertiesToRequest(DavUtils.getEtagOnlyPropset());
+            RemoteOperationResult<RemoteFile> rootResult = readRootOperation.execute(client);
+            if (!rootResult.isSuccess()) {
+                return failure(rootResult);
+            }
+            RemoteFile root = rootResult.getData();
+
+            if (!hasChanged(root)) {
+                result = new RemoteOperationResult<>(OK);
+                result.setData(changes);
+                Log_OC.d(TAG, "No changes in " + mRemotePath);
+                return result;
+            }
+
+            Map<String, List<String>> knownChildren = indexKnownChildren();
+
+            Deque<String> changedFolders = new ArrayDeque<>();
+            changedFolders.add(root.getRemotePath());
+
+            while (!changedFolders.isEmpty()) {
+                if (mCancellationRequested.get()) {
+                    throw new OperationCancelledException();
+                }
+                String folderPath = changedFolders.poll();
+                ReadRemoteFolderOperation readFolderOperation = new ReadRemoteFolderOperation(folderPath);
+                readFolderOperation.setPropertiesToRequest(mPropertiesToRequest);
+                RemoteOperationResult<ArrayList<RemoteFile>> folderResult = readFolderOperation.execute(client);
+                foldersListed++;
+                if (!folderResult.isSuccess()) {
+                    return failure(folderResult);
+                }
+
+                ArrayList<RemoteFile> folderAndFiles = folderResult.getData();
+                if (foldersListed == 1) {
+                    // the root was checked with its ETag only; its listing has all the properties
+                    RemoteFile listedRoot = folderAndFiles.get(0);
+                    emit(changes, new RemoteFileChange(
+                            mKnownEtags.containsKey(listedRoot.getRemotePath())
+                                    ? RemoteFileChange.Type.MODIFIED
+                                    : RemoteFileChange.Type.ADDED,
+                            listedRoot.getRemotePath(),
+                            listedRoot
+                    ));
+                }
+                Set<String> currentPaths = new HashSet<>();
+                for (RemoteFile file : folderAndFiles.subList(1, folderAndFiles.size())) {
+                    String path = file.getRemotePath();
+                    currentPaths.add(path);
+                    if (!mKnownEtags.containsKey(path)) {
+                        emit(changes, new RemoteFileChange(RemoteFileChange.Type.ADDED, path, file));
+                    } else if (hasChanged(file)) {
+                        emit(changes, new RemoteFileChange(RemoteFileChange.Type.MODIFIED, path, file));
+                    } else {
+                        continue;
+                    }
+                    if (file.isFolder()) {
+                        changedFolders.add(path);
+                    }
+                }
+
+                List<String> known = knownChildren.get(folderAndFiles.get(0).getRemotePath());
+                if (known != null) {
+                    for (String path : known) {
+                        if (!currentPaths.contains(path)) {
+                            emit(changes, new RemoteFileChange(RemoteFileChange.Type.REMOVED, path, null));
+                        }
+                    }
+                }
+            }
+
+            result = new RemoteOperationResult<>(OK);
+            result.setData(changes);
+            Log_OC.i(TAG, "Changes in " + mRemotePath + ": " + changes.size() + " found listing " +
+                    foldersListed + " folders");
+
+        } catch (Exception e) {
+            result = new RemoteOperationResult<>(e);
+            Log_OC.e(TAG, "Changes in " + mRemotePath + ": " + result.getLogMessage(), e);
+        }
+        return result;
+    }
+
+    private boolean hasChanged(RemoteFile file) {
+        String knownEtag = mKnownEtags.get(file.getRemotePath());
+        return knownEtag == null || !knownEtag.equals(file.getEtag());
+    }
+
+    /**
+     * @return Known remote paths grouped by the remote path of their parent folder
+     */
+    private Map<String, List<String>> indexKnownChildren() {
+        Map<String, List<String>> knownChildren = new HashMap<>();
+        for (String path : mKnownEtags.keySet()) {
+            String parentPath = getParentPath(path);
+            if (parentPath == null) {
+                continue;
+            }
+            List<String> children = knownChildren.get(parentPath);
+            if (children == null) {
+                children = new ArrayList<>();
+                knownChildren.put(parentPath, children);
+            }
+            children.add(path);
+        }
+        return knownChildren;
+    }
+
+    /**
+     * @return Remote path of the parent folder, ending in separator; NULL for the root of the account
+     */
+    private static String getParentPath(String path) {
+        int end = path.endsWith(FileUtils.PATH_SEPARATOR) ? path.length() - 1 : path.length();
+        int lastSeparator = path.lastIndexOf(FileUtils.PATH_SEPARATOR, end - 1);
+        return (lastSeparator < 0 || end <= 0) ? null : path.substring(0, lastSeparator + 1);
+    }
+
+    private void emit(List<RemoteFileChange> changes, RemoteFileChange change) {
+        if (mChangeListener != null) {
+            mChangeListener.onRemoteFileChange(change);
+        } else {
+            changes.add(change);
+        }
+    }
+
+    private RemoteOperationResult<ArrayList<RemoteFileChange>> failure(RemoteOperationResult<?> cause) {
+        RemoteOperationResult<ArrayList<RemoteFileChange>> result = new RemoteOperationResult<>(cause);
+        Log_OC.e(TAG, "Changes in " + mRemotePath + ": " + result.getLogMessage());
+        return result;
+    }
+}
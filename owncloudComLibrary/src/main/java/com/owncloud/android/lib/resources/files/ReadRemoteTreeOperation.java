@@ -0,0 +1,326 @@
+/* ownCloud Android Library is available under MIT license
+ *   Copyright (C) 2019 ownCloud GmbH.
+ *
+ *   Permission is hereby granted, free of charge, to any person obtaining a copy
+ *   of this software and associated documentation files (the "Software"), to deal
+ *   in the Software without restriction, including without limitation the rights
+ *   to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *   copies of the Software, and to permit persons to whom the Software is
+ *   furnished to do so, subject to the following conditions:
+ *
+ *   The above copyright notice and this permission notice shall be included in
+ *   all copies or substantial portions of the Software.
+ *
+ *   THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ *   EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ *   MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ *   NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ *   BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN
+ *   ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ *   CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *   THE SOFTWARE.
+ *
+ */
+
+package com.owncloud.android.lib.resources.files;
+
+import at.bitfire.dav4android.Property;
+import com.owncloud.android.lib.common.OwnCloudClient;
+import com.owncloud.android.lib.common.http.methods.webdav.DavUtils;
+import com.owncloud.android.lib.common.operations.OperationCancelledException;
+import com.owncloud.android.lib.common.operations.RemoteOperation;
+import com.owncloud.android.lib.common.operations.RemoteOperationResult;
+import com.owncloud.android.lib.common.operations.RequestPriority;
+import com.owncloud.android.lib.common.utils.Log_OC;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.owncloud.android.lib.common.operations.RemoteOperationResult.ResultCode.OK;
+
+/**
+ * Remote operation reading a whole subtree of the ownCloud server.
+ * <p>
+ * The subtree is walked level by level; the folders in a level are read in parallel, with a Depth-1 PROPFIND
+ * each, sharing the connection pool of the client. Folders are read by the thread running the operation and by
+ * helpers of the {@link com.owncloud.android.lib.common.operations.OperationScheduler}, within its limits for the
+ * account. The walk stops at the first folder that cannot be read.
+ * <p>
+ * By default the result contains the root folder followed by every file and folder found. When an
+ * {@link OnRemoteFileListener} is given, the files are delivered to it as they are read and the result only
+ * contains the root folder, so memory does not grow with the size of the subtree.
+ */
+public class ReadRemoteTreeOperation extends RemoteOperation<ArrayList<RemoteFile>> {
+
+    private static final String TAG = ReadRemoteTreeOperation.class.getSimpleName();
+
+    public static final int UNLIMITED_DEPTH = -1;
+    public static final int DEFAULT_PARALLELISM = 4;
+
+    /**
+     * Decides which files and folders of the subtree are included.
+     */
+    public interface PathFilter {
+        /**
+         * @param remoteFile File or folder found in the subtree
+         * @return 'true' to include it; excluded folders are not walked
+         */
+        boolean accept(RemoteFile remoteFile);
+    }
+
+    /**
+     * Receives the progress of the walk.
+     */
+    public interface OnTreeProgressListener {
+        /**
+         * Called every time a folder is read.
+         *
+         * @param depth          Depth of the level being walked; 0 is the root folder
+         * @param foldersRead    Folders of the level read so far
+         * @param foldersInLevel Folders in the level
+         * @param filesFound     Files and folders found so far in the whole walk
+         */
+        void onTreeProgress(int depth, int foldersRead, int foldersInLevel, long filesFound);
+    }
+
+    private final String mRemotePath;
+    private int mMaxDepth = UNLIMITED_DEPTH;
+    private int mParallelism = DEFAULT_PARALLELISM;
+    private PathFilter mPathFilter = null;
+    private Property.Name[] mPropertiesToRequest = DavUtils.getAllPropset();
+    private OnRemoteFileListener mRemoteFileListener = null;
+    private OnTreeProgressListener mTreeProgressListener = null;
+
+    private final AtomicBoolean mCancellationRequested = new AtomicBoolean(false);
+
+    /**
+     * @param remotePath Remote path of the root folder of the subtree.
+     */
+    public ReadRemoteTreeOperation(String remotePath) {
+        mRemotePath = remotePath;
+    }
+
+    /**
+     * @param maxDepth Number of levels below the root folder to read; 1 reads only the root folder,
+     *                 {@link #UNLIMITED_DEPTH} reads all of them.
+     * @throws IllegalArgumentException If 'maxDepth' is lower than 1 and not {@link #UNLIMITED_DEPTH}
+     */
+    public void setMaxDepth(int maxDepth) {
+        if (maxDepth < 1 && maxDepth != UNLIMITED_DEPTH) {
+            throw new IllegalArgumentException("maxDepth MUST BE one or greater, or UNLIMITED_DEPTH");
+        }
+        mMaxDepth = maxDepth;
+    }
+
+    /**
+     * @param parallelism Maximum number of folders read at the same time.
+     * @throws IllegalArgumentException If 'parallelism' is lower than 1
+     */
+    public void setParallelism(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism MUST BE one or greater");
+        }
+        mParallelism = parallelism;
+    }
+
+    public void setPathFilter(PathFilter pathFilter) {
+        mPathFilter = pathFilter;
+    }
+
+    /**
+     * Sets the properties to request for every file and folder; see {@link DavUtils}.
+     * {@link DavUtils.Propset#FULL} by default.
+     *
+     * @param propertiesToRequest Properties to request
+     */
+    public void setPropertiesToRequest(Property.Name[] propertiesToRequest) {
+        mPropertiesToRequest = (propertiesToRequest != null) ? propertiesToRequest : DavUtils.getAllPropset();
+    }
+
+    /**
+     * Streams the files found to a listener instead of returning them in the result. The listener is notified
+     * from the threads reading the folders, but never concurrently.
+     *
+     * @param remoteFileListener Listener to notify every file and folder found below the root folder.
+     */
+    public void setRemoteFileListener(OnRemoteFileListener remoteFileListener) {
+        mRemoteFileListener = remoteFileListener;
+    }
+
+    /**
+     * @param treeProgressListener Listener to notify, never concurrently, the progress of the walk.
+     */
+    public void setTreeProgressListener(OnTreeProgressListener treeProgressListener) {
+        mTreeProgressListener = treeProgressListener;
+    }
+
+    /**
+     * Stops the walk; folders being read are completed, but no more are started.
+     */
+    public void cancel() {
+        mCancellationRequested.set(true);
+    }
+
+    @Override
+    protected RequestPriority getDefaultRequestPriority() {
+        return RequestPriority.BACKGROUND;
+    }
+
+    @Override
+    protected RemoteOperationResult<ArrayList<RemoteFile>> run(OwnCloudClient client) {
+        final ArrayList<RemoteFile> collectedFiles = (mRemoteFileListener == null) ? new ArrayList<>() : null;
+        final AtomicLong filesFound = new AtomicLong(0);
+
+        RemoteOperationResult<ArrayList<RemoteFile>> result;
+        try {
+            // root folder, read in this thread
+            RemoteOperationResult<ArrayList<RemoteFile>> rootResult = newReadFolderOperation(mRemotePath)
+                    .execute(client);
+            if (!rootResult.isSuccess()) {
+                return rootResult;
+            }
+            RemoteFile rootFolder = rootResult.getData().get(0);
+            if (collectedFiles != null) {
+                collectedFiles.add(rootFolder);
+            }
+            List<RemoteFile> children = rootResult.getData().subList(1, rootResult.getData().size());
+            List<String> nextLevel = acceptFiles(children, collectedFiles, filesFound);
+            notifyProgress(0, 1, 1, filesFound.get());
+
+            // folders at a depth hold the files of the next one
+            int depth = 1;
+            while (!nextLevel.isEmpty() && (mMaxDepth == UNLIMITED_DEPTH || depth < mMaxDepth)) {
+                if (mCancellationRequested.get()) {
+                    throw new OperationCancelledException();
+                }
+                nextLevel = readLevel(client, depth, nextLevel, collectedFiles, filesFound);
+                depth++;
+            }
+
+            result = new RemoteOperationResult<>(OK);
+            if (collectedFiles != null) {
+                result.setData(collectedFiles);
+            } else {
+                ArrayList<RemoteFile> data = new ArrayList<>();
+                data.add(rootFolder);
+                result.setData(data);
+            }
+            Log_OC.i(TAG, "Read tree " + mRemotePath + ": " + filesFound.get() + " files in " + depth +
+                    " levels");
+
+        } catch (FolderReadException e) {
+            result = e.mResult;
+            Log_OC.e(TAG, "Read tree " + mRemotePath + ": " + result.getLogMessage());
+
+        } catch (Exception e) {
+            result = new RemoteOperationResult<>(e);
+            Log_OC.e(TAG, "Read tree " + mRemotePath + ": " + result.getLogMessage(), e);
+        }
+        return result;
+    }
+
+    /**
+     * Reads in parallel all the folders of a level.
+     *
+     * @return Remote paths of the folders in the next level
+     */
+    private List<String> readLevel(final OwnCloudClient client, final int depth, final List<String> folders,
+                                   final ArrayList<RemoteFile> collectedFiles, final AtomicLong filesFound)
+            throws Exception {
+        final int foldersInLevel = folders.size();
+        final AtomicInteger foldersRead = new AtomicInteger(0);
+
+        List<Callable<List<String>>> tasks = new ArrayList<>(foldersInLevel);
+        for (final String folder : folders) {
+            tasks.add(() -> {
+                if (mCancellationRequested.get()) {
+                    throw new OperationCancelledException();
+                }
+                RemoteOperationResult<ArrayList<RemoteFile>> folderResult = newReadFolderOperation(folder)
+                        .execute(client);
+                if (!folderResult.isSuccess()) {
+                    throw new FolderReadException(folderResult);
+                }
+                ArrayList<RemoteFile> folderAndFiles = folderResult.getData();
+                List<String> subfolders = acceptFiles(
+                        folderAndFiles.subList(1, folderAndFiles.size()),
+                        collectedFiles,
+                        filesFound
+                );
+                notifyProgress(depth, foldersRead.incrementAndGet(), foldersInLevel, filesFound.get());
+                return subfolders;
+            });
+        }
+
+        List<String> nextLevel = new ArrayList<>();
+        for (List<String> subfolders : runInParallel(mParallelism, tasks)) {
+            nextLevel.addAll(subfolders);
+        }
+        return nextLevel;
+    }
+
+    private ReadRemoteFolderOperation newReadFolderOperation(String remotePath) {
+        ReadRemoteFolderOperation readFolderOperation = new ReadRemoteFolderOperation(remotePath);
+        readFolderOperation.setPropertiesToRequest(mPropertiesToRequest);
+        return readFolderOperation;
+    }
+
+    /**
+     * Filters the files of a folder and delivers the accepted ones.
+     *
+     * @return Remote paths of the accepted folders
+     */
+    private List<String> acceptFiles(List<RemoteFile> files, ArrayList<RemoteFile> collectedFiles,
+                                     AtomicLong filesFound) {
+        List<String> folders = new ArrayList<>();
+        List<RemoteFile> accepted = new ArrayList<>(files.size());
+        for (RemoteFile file : files) {
+            if (mPathFilter == null || mPathFilter.accept(file)) {
+                accepted.add(file);
+                if (file.isFolder()) {
+                    folders.add(file.getRemotePath());
+                }
+            }
+        }
+        filesFound.addAndGet(accepted.size());
+
+        if (collectedFiles != null) {
+            synchronized (collectedFiles) {
+                collectedFiles.addAll(accepted);
+            }
+        } else {
+            synchronized (mRemoteFileListener) {
+                for (RemoteFile file : accepted) {
+                    mRemoteFileListener.onRemoteFile(file);
+                }
+            }
+        }
+        return folders;
+    }
+
+    private void notifyProgress(int depth, int foldersRead, int foldersInLevel, long filesFound) {
+        if (mTreeProgressListener != null) {
+            synchronized (mTreeProgressListener) {
+                mTreeProgressListener.onTreeProgress(depth, foldersRead, foldersInLevel, filesFound);
+            }
+        }
+    }
+
+    /**
+     * Carries the result of a folder that could not be read out of the thread reading it.
+     */
+    private static class FolderReadException extends Exception {
+
+        private static final long serialVersionUID = -3512381617430446853L;
+
+        private final RemoteOperationResult<ArrayList<RemoteFile>> mResult;
+
+        FolderReadException(RemoteOperationResult<ArrayList<RemoteFile>> result) {
+            mResult = result;
+        }
+    }
+}
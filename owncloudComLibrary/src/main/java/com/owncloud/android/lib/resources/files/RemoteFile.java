@@ -58,6 +58,9 @@ import static com.owncloud.android.lib.common.OwnCloudClient.WEBDAV_FILES_PATH_4
 
 public class RemoteFile implements Parcelable, Serializable {
 
+    public static final String MIME_DIR = "DIR";
+    public static final String MIME_DIR_UNIX = "httpd/unix-directory";
+
     /**
      * Parcelable Methods
      */
@@ -108,12 +111,32 @@ public class RemoteFile implements Parcelable, Serializable {
         mRemotePath = path;
         mCreationTimestamp = 0;
         mLength = 0;
-        mMimeType = "DIR";
+        mMimeType = MIME_DIR;
         mQuotaUsedBytes = BigDecimal.ZERO;
         mQuotaAvailableBytes = BigDecimal.ZERO;
         mPrivateLink = null;
     }
 
+    /**
+     * Create new {@link RemoteFile} with the same data as another one.
+     *
+     * @param remoteFile File to copy.
+     */
+    public RemoteFile(RemoteFile remoteFile) {
+        mRemotePath = remoteFile.mRemotePath;
+        mMimeType = remoteFile.mMimeType;
+        mLength = remoteFile.mLength;
+        mCreationTimestamp = remoteFile.mCreationTimestamp;
+        mModifiedTimestamp = remoteFile.mModifiedTimestamp;
+        mEtag = remoteFile.mEtag;
+        mPermissions = remoteFile.mPermissions;
+        mRemoteId = remoteFile.mRemoteId;
+        mSize = remoteFile.mSize;
+        mQuotaUsedBytes = remoteFile.mQuotaUsedBytes;
+        mQuotaAvailableBytes = remoteFile.mQuotaAvailableBytes;
+        mPrivateLink = remoteFile.mPrivateLink;
+    }
+
     public RemoteFile(final Response davResource, String userId) {
         this(getRemotePathFromUrl(davResource.getHref(), userId));
         final List<Property> properties = davResource.getProperties();
@@ -179,8 +202,12 @@ public class RemoteFile implements Parcelable, Serializable {
     private static String getRemotePathFromUrl(HttpUrl url, String userId) {
         final String davFilesPath = WEBDAV_FILES_PATH_4_0 + userId;
         final String absoluteDavPath = Uri.decode(url.encodedPath());
-        final String pathToOc = absoluteDavPath.split(davFilesPath)[0];
-        return absoluteDavPath.replace(pathToOc + davFilesPath, "");
+        // plain search instead of a regular expression; user ids may contain characters as '+' or '.'
+        final int davFilesPathIndex = absoluteDavPath.indexOf(davFilesPath);
+        if (davFilesPathIndex < 0) {
+            return absoluteDavPath;
+        }
+        return absoluteDavPath.substring(davFilesPathIndex + davFilesPath.length());
     }
 
     /**
@@ -203,6 +230,14 @@ public class RemoteFile implements Parcelable, Serializable {
         this.mMimeType = mimeType;
     }
 
+    /**
+     * @return 'true' if the remote file is a folder
+     */
+    public boolean isFolder() {
+        return MIME_DIR.equals(mMimeType) || MIME_DIR_UNIX.equals(mMimeType) ||
+                (mRemotePath != null && mRemotePath.endsWith(FileUtils.PATH_SEPARATOR));
+    }
+
     public long getLength() {
         return mLength;
     }
@@ -259,10 +294,18 @@ public class RemoteFile implements Parcelable, Serializable {
         mSize = size;
     }
 
+    public BigDecimal getQuotaUsedBytes() {
+        return mQuotaUsedBytes;
+    }
+
     public void setQuotaUsedBytes(BigDecimal quotaUsedBytes) {
         mQuotaUsedBytes = quotaUsedBytes;
     }
 
+    public BigDecimal getQuotaAvailableBytes() {
+        return mQuotaAvailableBytes;
+    }
+
     public void setQuotaAvailableBytes(BigDecimal quotaAvailableBytes) {
         mQuotaAvailableBytes = quotaAvailableBytes;
     }
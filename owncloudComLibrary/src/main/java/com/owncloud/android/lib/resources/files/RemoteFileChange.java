@@ -0,0 +1,70 @@
+/* ownCloud Android Library is available under MIT license
+ *   Copyright (C) 2019 ownCloud GmbH.
+ *
+ *   Permission is hereby granted, free of charge, to any person obtaining a copy
+ *   of this software and associated documentation files (the "Software"), to deal
+ *   in the Software without restriction, including without limitation the rights
+ *   to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *   copies of the Software, and to permit persons to whom the Software is
+ *   furnished to do so, subject to the following conditions:
+ *
+ *   The above copyright notice and this permission notice shall be included in
+ *   all copies or substantial portions of the Software.
+ *
+ *   THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ *   EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ *   MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ *   NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ *   BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN
+ *   ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ *   CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *   THE SOFTWARE.
+ *
+ */
+
+package com.owncloud.android.lib.resources.files;
+
+/**
+ * Change in a file or folder of the server since a previous snapshot.
+ */
+public class RemoteFileChange {
+
+    public enum Type {
+        ADDED,
+        MODIFIED,
+        /**
+         * The file or folder is not in the server anymore; for folders, neither is anything they contained
+         */
+        REMOVED
+    }
+
+    private final Type mType;
+    private final String mRemotePath;
+    private final RemoteFile mRemoteFile;
+
+    public RemoteFileChange(Type type, String remotePath, RemoteFile remoteFile) {
+        mType = type;
+        mRemotePath = remotePath;
+        mRemoteFile = remoteFile;
+    }
+
+    public Type getType() {
+        return mType;
+    }
+
+    public String getRemotePath() {
+        return mRemotePath;
+    }
+
+    /**
+     * @return Current state of the file or folder in the server; NULL if it was removed
+     */
+    public RemoteFile getRemoteFile() {
+        return mRemoteFile;
+    }
+
+    @Override
+    public String toString() {
+        return mType + " " + mRemotePath;
+    }
+}
@@ -0,0 +1,55 @@
+/* ownCloud Android Library is available under MIT license
+ *   Copyright (C) 2019 ownCloud GmbH.
+ *
+ *   Permission is hereby granted, free of charge, to any person obtaining a copy
+ *   of this software and associated documentation files (the "Software"), to deal
+ *   in the Software without restriction, including without limitation the rights
+ *   to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *   copies of the Software, and to permit persons to whom the Software is
+ *   furnished to do so, subject to the following conditions:
+ *
+ *   The above copyright notice and this permission notice shall be included in
+ *   all copies or substantial portions of the Software.
+ *
+ *   THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ *   EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ *   MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ *   NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ *   BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN
+ *   ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ *   CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *   THE SOFTWARE.
+ *
+ */
+
+package com.owncloud.android.lib.resources.files;
+
+import java.util.ArrayList;
+
+/**
+ * Store of folder listings kept between runs, so a folder not changed in the server can be served without
+ * listing it again.
+ * <p>
+ * Listings are stored as returned by {@link ReadRemoteFolderOperation}: the folder first, then its files. The
+ * ETag of the folder is used to revalidate them. Implementations must be thread safe, and must not share the
+ * {@link RemoteFile}s they keep with the callers, as these may change them.
+ */
+public interface RemoteFolderCache {
+
+    /**
+     * @param key Key of the listing.
+     * @return Listing stored with the key, or NULL if there is none.
+     */
+    ArrayList<RemoteFile> get(String key);
+
+    /**
+     * @param key     Key of the listing.
+     * @param listing Folder and files in it; replaces any listing stored with the key.
+     */
+    void put(String key, ArrayList<RemoteFile> listing);
+
+    /**
+     * @param key Key of the listing to forget.
+     */
+    void remove(String key);
+}
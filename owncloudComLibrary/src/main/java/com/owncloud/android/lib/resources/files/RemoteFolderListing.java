@@ -0,0 +1,410 @@
+/* ownCloud Android Library is available under MIT license
+ *   Copyright (C) 2019 ownCloud GmbH.
+ *
+ *   Permission is hereby granted, free of charge, to any person obtaining a copy
+ *   of this software and associated documentation files (the "Software"), to deal
+ *   in the Software without restriction, including without limitation the rights
+ *   to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *   copies of the Software, and to permit persons to whom the Software is
+ *   furnished to do so, subject to the following conditions:
+ *
+ *   The above copyright notice and this permission notice shall be included in
+ *   all copies or substantial portions of the Software.
+ *
+ *   THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ *   EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ *   MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ *   NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ *   BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN
+ *   ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ *   CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *   THE SOFTWARE.
+ *
+ */
+
+package com.owncloud.android.lib.resources.files;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compact, read-only listing of the files in a folder.
+ * <p>
+ * Holds the data of every file in columns instead of one {@link RemoteFile} per file: the path of the folder is
+ * stored once, the names of the files share a single char buffer, numbers are kept in primitive arrays and
+ * repeated values as MIME types and permissions share their instances. {@link RemoteFile}s are only created
+ * when requested with {@link #get(int)}, and are not kept by the listing. Quotas are only kept for the folder.
+ * <p>
+ * As a {@link List}, the listing has the shape of the result of {@link ReadRemoteFolderOperation}: the folder
+ * first, then its files. The accessors to single values, as {@link #getName(int)}, take instead the index of a
+ * file among the {@link #getFileCount()} files of the folder, its position in the list minus one.
+ * <p>
+ * Built with a {@link Builder}, that can also receive the files streamed by a {@link ReadRemoteFolderOperation}
+ * so a big folder is never held in memory as a list of {@link RemoteFile}s:
+ * <pre>
+ *     RemoteFolderListing.Builder builder = new RemoteFolderListing.Builder(remotePath);
+ *     RemoteOperationResult&lt;ArrayList&lt;RemoteFile&gt;&gt; result =
+ *             new ReadRemoteFolderOperation(remotePath, builder).execute(client);
+ *     RemoteFolderListing listing = builder.build(result.getData().get(0));
+ * </pre>
+ */
+public class RemoteFolderListing extends AbstractList<RemoteFile> {
+
+    private final RemoteFile mFolder;
+    private final String mParentPath;
+    private final int mCount;
+
+    private final char[] mNames;
+    private final int[] mNameOffsets;
+    private final long[] mLengths;
+    private final long[] mSizes;
+    private final long[] mCreationTimestamps;
+    private final long[] mModifiedTimestamps;
+    private final String[] mMimeTypes;
+    private final String[] mPermissions;
+    private final String[] mEtags;
+    private final String[] mRemoteIds;
+    private final String[] mPrivateLinks;
+
+    /**
+     * Takes the columns of the builder, already trimmed to the files added.
+     */
+    private RemoteFolderListing(RemoteFile folder, Builder builder) {
+        mFolder = new RemoteFile(folder);
+        mParentPath = builder.mParentPath;
+        mCount = builder.mCount;
+        mNames = builder.mNames;
+        mNameOffsets = builder.mNameOffsets;
+        mLengths = builder.mLengths;
+        mSizes = builder.mSizes;
+        mCreationTimestamps = builder.mCreationTimestamps;
+        mModifiedTimestamps = builder.mModifiedTimestamps;
+        mMimeTypes = builder.mMimeTypes;
+        mPermissions = builder.mPermissions;
+        mEtags = builder.mEtags;
+        mRemoteIds = builder.mRemoteIds;
+        mPrivateLinks = builder.mPrivateLinks;
+    }
+
+    /**
+     * Builds a listing from the result of {@link ReadRemoteFolderOperation}.
+     *
+     * @param folderAndFiles The folder first, then the files in it.
+     * @return Compact listing with the same data.
+     */
+    public static RemoteFolderListing fromFiles(List<RemoteFile> folderAndFiles) {
+        if (folderAndFiles == null || folderAndFiles.isEmpty()) {
+            throw new IllegalArgumentException("Parameter 'folderAndFiles' cannot be NULL or empty");
+        }
+        RemoteFile folder = folderAndFiles.get(0);
+        Builder builder = new Builder(folder.getRemotePath(), folderAndFiles.size() - 1);
+        for (RemoteFile file : folderAndFiles.subList(1, folderAndFiles.size())) {
+            builder.add(file);
+        }
+        return builder.build(folder);
+    }
+
+    /**
+     * @return The folder listed; every call creates a new {@link RemoteFile}.
+     */
+    public RemoteFile getFolder() {
+        return new RemoteFile(mFolder);
+    }
+
+    /**
+     * @return Remote path of the folder, ending with a separator.
+     */
+    public String getParentPath() {
+        return mParentPath;
+    }
+
+    /**
+     * @return Number of files in the folder.
+     */
+    public int getFileCount() {
+        return mCount;
+    }
+
+    /**
+     * @return Number of files in the folder, plus the folder itself.
+     */
+    @Override
+    public int size() {
+        return mCount + 1;
+    }
+
+    /**
+     * Creates a {@link RemoteFile} with the data of the folder or a file; every call creates a new one.
+     *
+     * @param position Position in the listing: 0 for the folder, the index of a file plus one for the file.
+     */
+    @Override
+    public RemoteFile get(int position) {
+        if (position < 0 || position > mCount) {
+            throw new IndexOutOfBoundsException("Index " + position + ", size " + size());
+        }
+        if (position == 0) {
+            return getFolder();
+        }
+        return getFile(position - 1);
+    }
+
+    /**
+     * Creates a {@link RemoteFile} with the data of a file; every call creates a new one.
+     *
+     * @param index Index of the file among the files of the folder.
+     */
+    public RemoteFile getFile(int index) {
+        checkIndex(index);
+        RemoteFile remoteFile = new RemoteFile();
+        remoteFile.setRemotePath(getRemotePath(index));
+        remoteFile.setMimeType(mMimeTypes[index]);
+        remoteFile.setLength(mLengths[index]);
+        remoteFile.setSize(mSizes[index]);
+        remoteFile.setCreationTimestamp(mCreationTimestamps[index]);
+        remoteFile.setModifiedTimestamp(mModifiedTimestamps[index]);
+        remoteFile.setEtag(mEtags[index]);
+        remoteFile.setPermissions(mPermissions[index]);
+        remoteFile.setRemoteId(mRemoteIds[index]);
+        remoteFile.setPrivateLink(mPrivateLinks[index]);
+        return remoteFile;
+    }
+
+    /**
+     * @return Name of the file, ending with a separator if it is a folder.
+     */
+    public String getName(int index) {
+        checkIndex(index);
+        return new String(mNames, mNameOffsets[index], mNameOffsets[index + 1] - mNameOffsets[index]);
+    }
+
+    public String getRemotePath(int index) {
+        return mParentPath + getName(index);
+    }
+
+    public String getMimeType(int index) {
+        checkIndex(index);
+        return mMimeTypes[index];
+    }
+
+    public boolean isFolder(int index) {
+        checkIndex(index);
+        return RemoteFile.MIME_DIR.equals(mMimeTypes[index]) || RemoteFile.MIME_DIR_UNIX.equals(mMimeTypes[index]) ||
+                (mNameOffsets[index + 1] > mNameOffsets[index] &&
+                        mNames[mNameOffsets[index + 1] - 1] == FileUtils.PATH_SEPARATOR.charAt(0));
+    }
+
+    public long getLength(int index) {
+        checkIndex(index);
+        return mLengths[index];
+    }
+
+    public long getSize(int index) {
+        checkIndex(index);
+        return mSizes[index];
+    }
+
+    public long getCreationTimestamp(int index) {
+        checkIndex(index);
+        return mCreationTimestamps[index];
+    }
+
+    public long getModifiedTimestamp(int index) {
+        checkIndex(index);
+        return mModifiedTimestamps[index];
+    }
+
+    public String getEtag(int index) {
+        checkIndex(index);
+        return mEtags[index];
+    }
+
+    public String getPermissions(int index) {
+        checkIndex(index);
+        return mPermissions[index];
+    }
+
+    public String getRemoteId(int index) {
+        checkIndex(index);
+        return mRemoteIds[index];
+    }
+
+    public String getPrivateLink(int index) {
+        checkIndex(index);
+        return mPrivateLinks[index];
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= mCount) {
+            throw new IndexOutOfBoundsException("File index " + index + ", files " + mCount);
+        }
+    }
+
+    /**
+     * Collects the files of a folder into a {@link RemoteFolderListing}. Not thread safe.
+     */
+    public static class Builder implements OnRemoteFileListener {
+
+        private static final int DEFAULT_CAPACITY = 64;
+        private static final int AVERAGE_NAME_LENGTH = 24;
+
+        private final String mParentPath;
+        private final Map<String, String> mSharedValues = new HashMap<>();
+        private int mCount = 0;
+
+        private char[] mNames;
+        private int mNamesLength = 0;
+        private int[] mNameOffsets;
+        private long[] mLengths;
+        private long[] mSizes;
+        private long[] mCreationTimestamps;
+        private long[] mModifiedTimestamps;
+        private String[] mMimeTypes;
+        private String[] mPermissions;
+        private String[] mEtags;
+        private String[] mRemoteIds;
+        private String[] mPrivateLinks;
+
+        /**
+         * @param remotePath Remote path of the folder to list.
+         */
+        public Builder(String remotePath) {
+            this(remotePath, DEFAULT_CAPACITY);
+        }
+
+        /**
+         * @param remotePath       Remote path of the folder to list.
+         * @param expectedCapacity Expected number of files in the folder.
+         */
+        public Builder(String remotePath, int expectedCapacity) {
+            if (remotePath == null || !remotePath.startsWith(FileUtils.PATH_SEPARATOR)) {
+                throw new IllegalArgumentException("remotePath MUST BE an absolute path: " + remotePath);
+            }
+            mParentPath = remotePath.endsWith(FileUtils.PATH_SEPARATOR) ?
+                    remotePath :
+                    remotePath + FileUtils.PATH_SEPARATOR;
+
+            int capacity = Math.max(1, expectedCapacity);
+            mNames = new char[capacity * AVERAGE_NAME_LENGTH];
+            mNameOffsets = new int[capacity + 1];
+            mLengths = new long[capacity];
+            mSizes = new long[capacity];
+            mCreationTimestamps = new long[capacity];
+            mModifiedTimestamps = new long[capacity];
+            mMimeTypes = new String[capacity];
+            mPermissions = new String[capacity];
+            mEtags = new String[capacity];
+            mRemoteIds = new String[capacity];
+            mPrivateLinks = new String[capacity];
+        }
+
+        @Override
+        public void onRemoteFile(RemoteFile remoteFile) {
+            add(remoteFile);
+        }
+
+        /**
+         * Adds a file to the listing.
+         *
+         * @param remoteFile File directly inside the folder.
+         * @return This builder.
+         */
+        public Builder add(RemoteFile remoteFile) {
+            String remotePath = remoteFile.getRemotePath();
+            if (remotePath == null || !remotePath.startsWith(mParentPath) ||
+                    remotePath.length() == mParentPath.length()) {
+                throw new IllegalArgumentException(remotePath + " is not a file in " + mParentPath);
+            }
+
+            if (mCount == mLengths.length) {
+                grow();
+            }
+
+            int nameLength = remotePath.length() - mParentPath.length();
+            if (mNamesLength + nameLength > mNames.length) {
+                mNames = Arrays.copyOf(mNames, Math.max(mNames.length * 2, mNamesLength + nameLength));
+            }
+            remotePath.getChars(mParentPath.length(), remotePath.length(), mNames, mNamesLength);
+            mNamesLength += nameLength;
+            mNameOffsets[mCount + 1] = mNamesLength;
+
+            mLengths[mCount] = remoteFile.getLength();
+            mSizes[mCount] = remoteFile.getSize();
+            mCreationTimestamps[mCount] = remoteFile.getCreationTimestamp();
+            mModifiedTimestamps[mCount] = remoteFile.getModifiedTimestamp();
+            mMimeTypes[mCount] = share(remoteFile.getMimeType());
+            mPermissions[mCount] = share(remoteFile.getPermissions());
+            mEtags[mCount] = remoteFile.getEtag();
+            mRemoteIds[mCount] = remoteFile.getRemoteId();
+            mPrivateLinks[mCount] = remoteFile.getPrivateLink();
+            mCount++;
+            return this;
+        }
+
+        /**
+         * The listing takes the columns of the builder instead of copying them. Files added later go to new
+         * columns, as the trimmed ones are full, so they do not change the listing.
+         *
+         * @param folder The folder listed, as returned by the server.
+         * @return Listing with the files added so far.
+         */
+        public RemoteFolderListing build(RemoteFile folder) {
+            if (folder == null) {
+                throw new IllegalArgumentException("Parameter 'folder' cannot be NULL");
+            }
+            trimToCount();
+            return new RemoteFolderListing(folder, this);
+        }
+
+        private String share(String value) {
+            if (value == null) {
+                return null;
+            }
+            String sharedValue = mSharedValues.get(value);
+            if (sharedValue == null) {
+                mSharedValues.put(value, value);
+                sharedValue = value;
+            }
+            return sharedValue;
+        }
+
+        /**
+         * Trims the columns with room left one by one, so at most one of them is held twice at a time.
+         */
+        private void trimToCount() {
+            if (mNames.length != mNamesLength) {
+                mNames = Arrays.copyOf(mNames, mNamesLength);
+            }
+            if (mLengths.length == mCount) {
+                return;
+            }
+            mNameOffsets = Arrays.copyOf(mNameOffsets, mCount + 1);
+            mLengths = Arrays.copyOf(mLengths, mCount);
+            mSizes = Arrays.copyOf(mSizes, mCount);
+            mCreationTimestamps = Arrays.copyOf(mCreationTimestamps, mCount);
+            mModifiedTimestamps = Arrays.copyOf(mModifiedTimestamps, mCount);
+            mMimeTypes = Arrays.copyOf(mMimeTypes, mCount);
+            mPermissions = Arrays.copyOf(mPermissions, mCount);
+            mEtags = Arrays.copyOf(mEtags, mCount);
+            mRemoteIds = Arrays.copyOf(mRemoteIds, mCount);
+            mPrivateLinks = Arrays.copyOf(mPrivateLinks, mCount);
+        }
+
+        private void grow() {
+            int capacity = Math.max(DEFAULT_CAPACITY, mLengths.length * 2);
+            mNameOffsets = Arrays.copyOf(mNameOffsets, capacity + 1);
+            mLengths = Arrays.copyOf(mLengths, capacity);
+            mSizes = Arrays.copyOf(mSizes, capacity);
+            mCreationTimestamps = Arrays.copyOf(mCreationTimestamps, capacity);
+            mModifiedTimestamps = Arrays.copyOf(mModifiedTimestamps, capacity);
+            mMimeTypes = Arrays.copyOf(mMimeTypes, capacity);
+            mPermissions = Arrays.copyOf(mPermissions, capacity);
+            mEtags = Arrays.copyOf(mEtags, capacity);
+            mRemoteIds = Arrays.copyOf(mRemoteIds, capacity);
+            mPrivateLinks = Arrays.copyOf(mPrivateLinks, capacity);
+        }
+    }
+}
@@ -0,0 +1,242 @@
+/* ownCloud Android Library is available under MIT license
+ *   Copyright (C) 2019 ownCloud GmbH.
+ *
+ *   Permission is hereby granted, free of charge, to any person obtaining a copy
+ *   of this software and associated documentation files (the "Software"), to deal
+ *   in the Software without restriction, including without limitation the rights
+ *   to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *   copies of the Software, and to permit persons to whom the Software is
+ *   furnished to do so, subject to the following conditions:
+ *
+ *   The above copyright notice and this permission notice shall be included in
+ *   all copies or substantial portions of the Software.
+ *
+ *   THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ *   EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ *   MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ *   NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ *   BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN
+ *   ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ *   CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *   THE SOFTWARE.
+ *
+ */
+
+package com.owncloud.android.lib.resources.files;
+
+import at.bitfire.dav4android.Property;
+import com.owncloud.android.lib.common.OwnCloudClient;
+import com.owncloud.android.lib.common.accounts.AccountUtils;
+import com.owncloud.android.lib.common.http.HttpConstants;
+import com.owncloud.android.lib.common.http.methods.webdav.DavUtils;
+import com.owncloud.android.lib.common.http.methods.webdav.ReportMethod;
+import com.owncloud.android.lib.common.operations.RemoteOperation;
+import com.owncloud.android.lib.common.operations.RemoteOperationResult;
+import com.owncloud.android.lib.common.operations.RequestPriority;
+import com.owncloud.android.lib.common.utils.Log_OC;
+
+import java.net.URL;
+import java.util.ArrayList;
+
+import static com.owncloud.android.lib.common.operations.RemoteOperationResult.ResultCode.OK;
+
+/**
+ * Remote operation searching files in the server, with a single request instead of walking the folders.
+ * <p>
+ * Searches by name use the 'oc:search-files' REPORT, and searches of favorites the 'oc:filter-files' one; both
+ * are run on the root folder of the user. Only searches by name can be paged, 'oc:filter-files' has no limit
+ * or offset. The response is parsed while it is read.
+ */
+public class SearchRemoteFilesOperation extends RemoteOperation<ArrayList<RemoteFile>> {
+
+    private static final String TAG = SearchRemoteFilesOperation.class.getSimpleName();
+
+    public static final int NO_LIMIT = -1;
+
+    private static final String NS_WEBDAV = "DAV:";
+    private static final String NS_OWNCLOUD = "http://owncloud.org/ns";
+
+    public enum SearchType {
+        /**
+         * Files with a name containing the pattern
+         */
+        NAME,
+        /**
+         * Files marked as favorite by the user; the pattern is ignored
+         */
+        FAVORITES
+    }
+
+    private final SearchType mSearchType;
+    private final String mPattern;
+    private int mOffset = 0;
+    private int mLimit = NO_LIMIT;
+    private String mMimeTypePrefix = null;
+    private Property.Name[] mPropertiesToRequest = DavUtils.getAllPropset();
+    private OnRemoteFileListener mRemoteFileListener = null;
+
+    /**
+     * @param searchType Kind of search.
+     * @param pattern    Text to search in the names of the files; ignored in searches of favorites.
+     */
+    public SearchRemoteFilesOperation(SearchType searchType, String pattern) {
+        if (searchType == null) {
+            throw new IllegalArgumentException("Parameter 'searchType' cannot be NULL");
+        }
+        mSearchType = searchType;
+        mPattern = (pattern != null) ? pattern : "";
+    }
+
+    /**
+     * Requests a page of the results. Only for searches by name; searches of favorites always get all of them.
+     *
+     * @param offset Number of results to skip.
+     * @param limit  Maximum number of results, or {@link #NO_LIMIT}.
+     */
+    public void setPage(int offset, int limit) {
+        if (offset < 0) {
+            throw new IllegalArgumentException("offset MUST BE zero or greater");
+        }
+        mOffset = offset;
+        mLimit = limit;
+    }
+
+    /**
+     * Keeps only the results with a MIME type starting with the given prefix, e.g. "image/". The server does not
+     * support filtering by type, so this is applied on the results received; a page can then hold fewer results
+     * than its limit.
+     *
+     * @param mimeTypePrefix Prefix of the MIME types to keep; NULL to keep all.
+     */
+    public void setMimeTypePrefix(String mimeTypePrefix) {
+        mMimeTypePrefix = mimeTypePrefix;
+    }
+
+    /**
+     * @param propertiesToRequest Properties to request for every result, see {@link DavUtils};
+     *                            {@link DavUtils.Propset#FULL} by default.
+     */
+    public void setPropertiesToRequest(Property.Name[] propertiesToRequest) {
+        mPropertiesToRequest = (propertiesToRequest != null) ? propertiesToRequest : DavUtils.getAllPropset();
+    }
+
+    /**
+     * Streams the results to a listener, in the thread running the operation, instead of returning them in the
+     * result.
+     */
+    public void setRemoteFileListener(OnRemoteFileListener remoteFileListener) {
+        mRemoteFileListener = remoteFileListener;
+    }
+
+    @Override
+    protected RequestPriority getDefaultRequestPriority() {
+        return RequestPriority.INTERACTIVE;
+    }
+
+    @Override
+    protected RemoteOperationResult<ArrayList<RemoteFile>> run(OwnCloudClient client) {
+        RemoteOperationResult<ArrayList<RemoteFile>> result;
+
+        try {
+            ReportMethod reportMethod = new ReportMethod(
+                    new URL(client.getUserFilesWebDavUri().toString()),
+                    buildReport()
+            );
+
+            int status = client.executeHttpMethod(reportMethod);
+
+            if (status == HttpConstants.HTTP_MULTI_STATUS) {
+                final ArrayList<RemoteFile> matchingFiles = new ArrayList<>();
+                final String userId = AccountUtils.getUserId(mAccount, mContext);
+                reportMethod.parseMultiStatus(response -> {
+                    RemoteFile remoteFile = new RemoteFile(response, userId);
+                    if (mMimeTypePrefix != null && (remoteFile.getMimeType() == null ||
+                            !remoteFile.getMimeType().startsWith(mMimeTypePrefix))) {
+                        return;
+                    }
+                    if (mRemoteFileListener != null) {
+                        mRemoteFileListener.onRemoteFile(remoteFile);
+                    } else {
+                        matchingFiles.add(remoteFile);
+                    }
+                });
+                result = new RemoteOperationResult<>(OK);
+                result.setData(matchingFiles);
+                Log_OC.d(TAG, "Search " + mSearchType + " '" + mPattern + "': " + result.getLogMessage());
+
+            } else {
+                result = new RemoteOperationResult<>(reportMethod);
+                client.exhaustResponse(reportMethod.getResponseBodyAsStream());
+                Log_OC.e(TAG, "Search " + mSearchType + " '" + mPattern + "': " + result.getLogMessage());
+            }
+
+        } catch (Exception e) {
+            result = new RemoteOperationResult<>(e);
+            Log_OC.e(TAG, "Search " + mSearchType + " '" + mPattern + "': " + result.getLogMessage(), e);
+        }
+        return result;
+    }
+
+    private String buildReport() {
+        String reportName = (mSearchType == SearchType.NAME) ? "oc:search-files" : "oc:filter-files";
+        StringBuilder report = new StringBuilder()
+                .append("<?xml version=\"1.0\" encoding=\"utf-8\"?>")
+                .append('<').append(reportName)
+                .append(" xmlns:d=\"").append(NS_WEBDAV).append('"')
+                .append(" xmlns:oc=\"").append(NS_OWNCLOUD).append("\">");
+
+        report.append("<d:prop>");
+        for (Property.Name property : mPropertiesToRequest) {
+            if (NS_WEBDAV.equals(property.getNamespace())) {
+                report.append("<d:").append(property.getName()).append("/>");
+            } else if (NS_OWNCLOUD.equals(property.getNamespace())) {
+                report.append("<oc:").append(property.getName()).append("/>");
+            } else {
+                report.append('<').append(property.getName())
+                        .append(" xmlns=\"").append(escapeXml(property.getNamespace())).append("\"/>");
+            }
+        }
+        report.append("</d:prop>");
+
+        if (mSearchType == SearchType.FAVORITES) {
+            report.append("<oc:filter-rules><oc:favorite>1</oc:favorite></oc:filter-rules>");
+        } else {
+            report.append("<oc:search>");
+            report.append("<oc:pattern>").append(escapeXml(mPattern)).append("</oc:pattern>");
+            if (mLimit != NO_LIMIT) {
+                report.append("<oc:limit>").append(mLimit).append("</oc:limit>");
+            }
+            report.append("<oc:offset>").append(mOffset).append("</oc:offset>");
+            report.append("</oc:search>");
+        }
+
+        return report.append("</").append(reportName).append('>').toString();
+    }
+
+    private static String escapeXml(String text) {
+        StringBuilder escaped = new StringBuilder(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            switch (c) {
+                case '<':
+                    escaped.append("&lt;");
+                    break;
+                case '>':
+                    escaped.append("&gt;");
+                    break;
+                case '&':
+                    escaped.append("&amp;");
+                    break;
+                case '"':
+                    escaped.append("&quot;");
+                    break;
+                case '\'':
+                    escaped.append("&apos;");
+                    break;
+                default:
+                    escaped.append(c);
+            }
+        }
+        return escaped.toString();
+    }
+}
@@ -29,17 +29,19 @@ import com.owncloud.android.lib.common.http.HttpConstants;
 import com.owncloud.android.lib.common.http.methods.webdav.PutMethod;
 import com.owncloud.android.lib.common.network.FileRequestBody;
 import com.owncloud.android.lib.common.network.OnDatatransferProgressListener;
+import com.owncloud.android.lib.common.network.ProgressDispatcher;
 import com.owncloud.android.lib.common.network.WebdavUtils;
 import com.owncloud.android.lib.common.operations.OperationCancelledException;
 import com.owncloud.android.lib.common.operations.RemoteOperation;
 import com.owncloud.android.lib.common.operations.RemoteOperationResult;
+import com.owncloud.android.lib.common.operations.RequestPriority;
 import com.owncloud.android.lib.common.utils.Log_OC;
 import okhttp3.MediaType;
 
 import java.io.File;
 import java.net.URL;
-import java.util.HashSet;
 import java.util.Set;
+import java.util.concurrent.CopyOnWriteArraySet;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import static com.owncloud.android.lib.common.operations.RemoteOperationResult.ResultCode.OK;
@@ -62,7 +64,12 @@ public class UploadRemoteFileOperation extends RemoteOperation {
     protected String mFileLastModifTimestamp;
     protected PutMethod mPutMethod = null;
     protected String mRequiredEtag = null;
-    protected Set<OnDatatransferProgressListener> mDataTransferListeners = new HashSet<OnDatatransferProgressListener>();
+    protected Set<OnDatatransferProgressListener> mDataTransferListeners = new CopyOnWriteArraySet<>();
+    /**
+     * Receives the progress from the request bodies, and notifies it to {@link #mDataTransferListeners} with a
+     * limited frequency
+     */
+    protected final ProgressDispatcher mProgressDispatcher = new ProgressDispatcher(mDataTransferListeners);
 
     protected FileRequestBody mFileRequestBody = null;
 
@@ -80,6 +87,11 @@ public class UploadRemoteFileOperation extends RemoteOperation {
         mRequiredEtag = requiredEtag;
     }
 
+    @Override
+    protected RequestPriority getDefaultRequestPriority() {
+        return RequestPriority.BULK;
+    }
+
     @Override
     protected RemoteOperationResult run(OwnCloudClient client) {
         RemoteOperationResult result;
@@ -95,7 +107,12 @@ public class UploadRemoteFileOperation extends RemoteOperation {
                 result = new RemoteOperationResult<>(new OperationCancelledException());
             } else {
                 // perform the upload
-                result = uploadFile(client);
+                try {
+                    result = uploadFile(client);
+                } finally {
+                    // listeners get the last progress of the bodies, even if not reported yet
+                    mProgressDispatcher.finish();
+                }
                 Log_OC.i(TAG, "Upload of " + mLocalPath + " to " + mRemotePath + ": " +
                         result.getLogMessage());
             }
@@ -123,10 +140,7 @@ public class UploadRemoteFileOperation extends RemoteOperation {
         MediaType mediaType = MediaType.parse(mMimeType);
 
         mFileRequestBody = new FileRequestBody(fileToUpload, mediaType);
-
-        synchronized (mDataTransferListeners) {
-            mFileRequestBody.addDatatransferProgressListeners(mDataTransferListeners);
-        }
+        mFileRequestBody.addDatatransferProgressListener(mProgressDispatcher);
 
         if (mRequiredEtag != null && mRequiredEtag.length() > 0) {
             mPutMethod.addRequestHeader(HttpConstants.IF_MATCH_HEADER, mRequiredEtag);
@@ -151,22 +165,26 @@ public class UploadRemoteFileOperation extends RemoteOperation {
         return mDataTransferListeners;
     }
 
+    /**
+     * Adds a listener of the progress of the upload; can be called while the upload is running.
+     */
     public void addDatatransferProgressListener(OnDatatransferProgressListener listener) {
-        synchronized (mDataTransferListeners) {
-            mDataTransferListeners.add(listener);
-        }
-        if (mFileRequestBody != null) {
-            mFileRequestBody.addDatatransferProgressListener(listener);
-        }
+        mDataTransferListeners.add(listener);
     }
 
     public void removeDatatransferProgressListener(OnDatatransferProgressListener listener) {
-        synchronized (mDataTransferListeners) {
-            mDataTransferListeners.remove(listener);
-        }
-        if (mFileRequestBody != null) {
-            mFileRequestBody.removeDatatransferProgressListener(listener);
-        }
+        mDataTransferListeners.remove(listener);
+    }
+
+    /**
+     * Sets how often the listeners are notified of the progress; by default, every
+     * {@link ProgressDispatcher#DEFAULT_MIN_PERCENT_STEP}% or {@link ProgressDispatcher#DEFAULT_MIN_INTERVAL} ms.
+     *
+     * @param minPercentStep Percentage of the file to transfer between notifications, 0 to ignore it.
+     * @param minInterval    Milliseconds between notifications, 0 to ignore it.
+     */
+    public void setProgressThresholds(int minPercentStep, long minInterval) {
+        mProgressDispatcher.setThresholds(minPercentStep, minInterval);
     }
 
     public void cancel() {
@@ -0,0 +1,236 @@
+/* ownCloud Android Library is available under MIT license
+ *   Copyright (C) 2019 ownCloud GmbH.
+ *
+ *   Permission is hereby granted, free of charge, to any person obtaining a copy
+ *   of this software and associated documentation files (the "Software"), to deal
+ *   in the Software without restriction, including without limitation the rights
+ *   to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *   copies of the Software, and to permit persons to whom the Software is
+ *   furnished to do so, subject to the following conditions:
+ *
+ *   The above copyright notice and this permission notice shall be included in
+ *   all copies or substantial portions of the Software.
+ *
+ *   THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ *   EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ *   MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ *   NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ *   BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN
+ *   ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ *   CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *   THE SOFTWARE.
+ *
+ */
+
+package com.owncloud.android.lib.resources.files.chunks;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Chooses the size of the chunks of an upload from the throughput and errors measured in the previous ones.
+ * <p>
+ * The size aims for chunks taking a target time to upload: big chunks on fast links, where the overhead of every
+ * request dominates, and small ones on slow or unreliable links, where a failed chunk wastes the data already
+ * sent. It changes at most by half or double per chunk, never grows while recent chunks are failing, and is kept
+ * between a minimum and a maximum.
+ * <p>
+ * Thread safe; an instance can be shared by the uploads going through the same network, so every upload starts
+ * with what the previous ones learned.
+ */
+public class ChunkSizeController {
+
+    public static final long DEFAULT_MIN_CHUNK_SIZE = 256 * 1024;
+    public static final long DEFAULT_MAX_CHUNK_SIZE = 32 * 1024 * 1024;
+    public static final long DEFAULT_TARGET_CHUNK_DURATION = 5000; // ms
+
+    /**
+     * Maximum number of chunks kept in the history
+     */
+    public static final int HISTORY_SIZE = 32;
+
+    private static final double MAX_ERROR_RATE_TO_GROW = 0.1;
+
+    private final long mMinChunkSize;
+    private final long mMaxChunkSize;
+    private final long mTargetChunkDuration;
+    private final Deque<ChunkSample> mHistory = new ArrayDeque<>(HISTORY_SIZE);
+    private long mChunkSize;
+
+    /**
+     * Controller with the default bounds and target duration, starting with
+     * {@link ChunkedUploadRemoteFileOperation#CHUNK_SIZE}.
+     */
+    public ChunkSizeController() {
+        this(DEFAULT_MIN_CHUNK_SIZE, DEFAULT_MAX_CHUNK_SIZE, ChunkedUploadRemoteFileOperation.CHUNK_SIZE,
+                DEFAULT_TARGET_CHUNK_DURATION);
+    }
+
+    /**
+     * @param minChunkSize        Minimum size of a chunk, in bytes.
+     * @param maxChunkSize        Maximum size of a chunk, in bytes; must not exceed the limits of the server.
+     * @param initialChunkSize    Size of the first chunk, in bytes.
+     * @param targetChunkDuration Time to upload a chunk to aim for, in milliseconds.
+     */
+    public ChunkSizeController(long minChunkSize, long maxChunkSize, long initialChunkSize,
+                               long targetChunkDuration) {
+        if (minChunkSize <= 0 || maxChunkSize < minChunkSize) {
+            throw new IllegalArgumentException("minChunkSize MUST BE greater than zero and not greater than " +
+                    "maxChunkSize");
+        }
+        if (targetChunkDuration <= 0) {
+            throw new IllegalArgumentException("targetChunkDuration MUST BE greater than zero");
+        }
+        mMinChunkSize = minChunkSize;
+        mMaxChunkSize = maxChunkSize;
+        mTargetChunkDuration = targetChunkDuration;
+        mChunkSize = bound(initialChunkSize);
+    }
+
+    /**
+     * @return Size for the next chunk, in bytes.
+     */
+    public synchronized long getChunkSize() {
+        return mChunkSize;
+    }
+
+    /**
+     * Records a chunk uploaded, and adapts the size of the next ones to its throughput.
+     *
+     * @param length   Length of the chunk, in bytes.
+     * @param duration Time to upload it, in milliseconds.
+     */
+    public synchronized void onChunkUploaded(long length, long duration) {
+        record(new ChunkSample(length, duration, true));
+        if (length < mChunkSize) {
+            // last chunk of a file; the overhead of the request weighs more in a shorter one
+            return;
+        }
+
+        double throughput = (double) length / Math.max(1, duration);
+        long idealChunkSize = (long) (throughput * mTargetChunkDuration);
+        if (idealChunkSize > mChunkSize) {
+            if (getErrorRate() <= MAX_ERROR_RATE_TO_GROW) {
+                mChunkSize = bound(Math.min(idealChunkSize, mChunkSize * 2));
+            }
+        } else {
+            mChunkSize = bound(Math.max(idealChunkSize, mChunkSize / 2));
+        }
+    }
+
+    /**
+     * Records a chunk failed, and halves the size of the next ones.
+     *
+     * @param length   Length of the chunk, in bytes.
+     * @param duration Time until it failed, in milliseconds.
+     */
+    public synchronized void onChunkFailed(long length, long duration) {
+        record(new ChunkSample(length, duration, false));
+        mChunkSize = bound(mChunkSize / 2);
+    }
+
+    /**
+     * @return Last chunks uploaded or failed, the oldest first; at most {@link #HISTORY_SIZE}.
+     */
+    public synchronized List<ChunkSample> getHistory() {
+        return new ArrayList<>(mHistory);
+    }
+
+    /**
+     * @return Throughput of the chunks uploaded in the history, in bytes per second; 0 if none.
+     */
+    public synchronized long getThroughput() {
+        long length = 0;
+        long duration = 0;
+        for (ChunkSample sample : mHistory) {
+            if (sample.isSuccess()) {
+                length += sample.getLength();
+                duration += sample.getDuration();
+            }
+        }
+        return (length * 1000) / Math.max(1, duration);
+    }
+
+    /**
+     * @return Fraction of the chunks in the history that failed.
+     */
+    public synchronized double getErrorRate() {
+        if (mHistory.isEmpty()) {
+            return 0;
+        }
+        int failures = 0;
+        for (ChunkSample sample : mHistory) {
+            if (!sample.isSuccess()) {
+                failures++;
+            }
+        }
+        return (double) failures / mHistory.size();
+    }
+
+    public long getMinChunkSize() {
+        return mMinChunkSize;
+    }
+
+    public long getMaxChunkSize() {
+        return mMaxChunkSize;
+    }
+
+    private void record(ChunkSample sample) {
+        if (mHistory.size() == HISTORY_SIZE) {
+            mHistory.removeFirst();
+        }
+        mHistory.addLast(sample);
+    }
+
+    private long bound(long chunkSize) {
+        return Math.max(mMinChunkSize, Math.min(mMaxChunkSize, chunkSize));
+    }
+
+    /**
+     * Measures of a chunk sent.
+     */
+    public static class ChunkSample {
+
+        private final long mLength;
+        private final long mDuration;
+        private final boolean mSuccess;
+
+        ChunkSample(long length, long duration, boolean success) {
+            mLength = length;
+            mDuration = duration;
+            mSuccess = success;
+        }
+
+        /**
+         * @return Length of the chunk, in bytes.
+         */
+        public long getLength() {
+            return mLength;
+        }
+
+        /**
+         * @return Time to upload the chunk, or until it failed, in milliseconds.
+         */
+        public long getDuration() {
+            return mDuration;
+        }
+
+        public boolean isSuccess() {
+            return mSuccess;
+        }
+
+        /**
+         * @return Throughput of the chunk, in bytes per second.
+         */
+        public long getThroughput() {
+            return (mLength * 1000) / Math.max(1, mDuration);
+        }
+
+        @Override
+        public String toString() {
+            return mLength + " bytes in " + mDuration + " ms" + (mSuccess ? "" : " (failed)");
+        }
+    }
+}
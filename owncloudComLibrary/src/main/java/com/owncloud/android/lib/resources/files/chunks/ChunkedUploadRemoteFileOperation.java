@@ -24,9 +24,18 @@
 
 package com.owncloud.android.lib.resources.files.chunks;
 
+import at.bitfire.dav4android.Property;
+import at.bitfire.dav4android.Response;
+import at.bitfire.dav4android.property.GetContentLength;
 import com.owncloud.android.lib.common.OwnCloudClient;
+import com.owncloud.android.lib.common.http.HttpConstants;
+import com.owncloud.android.lib.common.http.methods.nonwebdav.DeleteMethod;
+import com.owncloud.android.lib.common.http.methods.webdav.DavConstants;
+import com.owncloud.android.lib.common.http.methods.webdav.DavUtils;
+import com.owncloud.android.lib.common.http.methods.webdav.PropfindMethod;
 import com.owncloud.android.lib.common.http.methods.webdav.PutMethod;
 import com.owncloud.android.lib.common.network.ChunkFromFileRequestBody;
+import com.owncloud.android.lib.common.network.OnDatatransferProgressListener;
 import com.owncloud.android.lib.common.operations.OperationCancelledException;
 import com.owncloud.android.lib.common.operations.RemoteOperationResult;
 import com.owncloud.android.lib.common.utils.Log_OC;
@@ -38,13 +47,33 @@ import java.io.File;
 import java.io.RandomAccessFile;
 import java.net.URL;
 import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static com.owncloud.android.lib.common.http.HttpConstants.IF_MATCH_HEADER;
 import static com.owncloud.android.lib.common.operations.RemoteOperationResult.ResultCode.OK;
 
 /**
  * Remote operation performing the chunked upload of a remote file to the ownCloud server.
+ * <p>
+ * Chunks are uploaded one after another, or several at a time if set with {@link #setParallelChunks(int)}. In
+ * both cases the file is built in the server from the chunks with {@link MoveRemoteChunksFileOperation}.
+ * <p>
+ * An interrupted upload can be resumed running the operation again with the same transfer id, after enabling
+ * {@link #setResumeUpload(boolean)}: only the chunks not stored in the server yet are sent.
+ * <p>
+ * Chunks have a fixed size of {@link #CHUNK_SIZE} bytes, unless a {@link ChunkSizeController} is set to adapt the
+ * size of every chunk to the throughput of the previous ones when they are uploaded one by one.
  *
  * @author David A. Velasco
  * @author David González Verdugo
@@ -56,6 +85,11 @@ public class ChunkedUploadRemoteFileOperation extends UploadRemoteFileOperation
     private static final String TAG = ChunkedUploadRemoteFileOperation.class.getSimpleName();
 
     private String mTransferId;
+    private int mParallelChunks = 1;
+    private boolean mResumeUpload = false;
+    private long mResumedLength = 0;
+    private ChunkSizeController mChunkSizeController = null;
+    private final Set<PutMethod> mPutMethodsInFlight = new HashSet<>();
 
     public ChunkedUploadRemoteFileOperation(String transferId, String localPath, String remotePath, String mimeType,
                                             String requiredEtag, String fileLastModifTimestamp) {
@@ -63,6 +97,71 @@ public class ChunkedUploadRemoteFileOperation extends UploadRemoteFileOperation
         mTransferId = transferId;
     }
 
+    /**
+     * Sets the number of chunks to upload at a time. Sending several chunks at once uses better links with high
+     * latency, where a single one leaves the connection idle while waiting for every response.
+     * <p>
+     * Chunks beyond the first are uploaded by helpers of the
+     * {@link com.owncloud.android.lib.common.operations.OperationScheduler}, so they are also limited by its
+     * maximum of transfers at the same time.
+     *
+     * @param parallelChunks Number of chunks to upload at a time; 1, the default, uploads them one by one.
+     */
+    public void setParallelChunks(int parallelChunks) {
+        if (parallelChunks < 1) {
+            throw new IllegalArgumentException("parallelChunks MUST BE 1 or greater");
+        }
+        mParallelChunks = parallelChunks;
+    }
+
+    public int getParallelChunks() {
+        return mParallelChunks;
+    }
+
+    /**
+     * Enables resuming an upload interrupted before: the chunks stored in the server for the transfer id, with
+     * the expected lengths, are not sent again. Costs a request to list the chunks, and one more for every stored
+     * chunk out of the file being uploaded, deleted so it is not joined into it.
+     * <p>
+     * Only valid if the transfer id was used before to upload the same version of the same file.
+     *
+     * @param resumeUpload 'True' to resume the upload; 'false', the default, to send every chunk.
+     */
+    public void setResumeUpload(boolean resumeUpload) {
+        mResumeUpload = resumeUpload;
+    }
+
+    /**
+     * Sets a controller to choose the size of every chunk from the throughput of the previous ones. Only used when
+     * chunks are uploaded one by one; parallel uploads use {@link #CHUNK_SIZE}.
+     * <p>
+     * A resumed upload keeps the first chunks stored in the server, sent with or without a controller, and
+     * deletes the rest before sending its own.
+     *
+     * @param chunkSizeController Controller of the chunk size, e.g. shared by all the uploads; NULL, the default,
+     *                            to use {@link #CHUNK_SIZE}.
+     */
+    public void setChunkSizeController(ChunkSizeController chunkSizeController) {
+        mChunkSizeController = chunkSizeController;
+    }
+
+    public ChunkSizeController getChunkSizeController() {
+        return mChunkSizeController;
+    }
+
+    /**
+     * @return Length of the file found uploaded in the server when the operation started, not sent again.
+     */
+    public long getResumedLength() {
+        return mResumedLength;
+    }
+
+    @Override
+    public void cancel() {
+        super.cancel();
+        abortPutMethodsInFlight();
+    }
+
     @Override
     protected RemoteOperationResult uploadFile(OwnCloudClient client) throws Exception {
         int status;
@@ -76,39 +175,66 @@ public class ChunkedUploadRemoteFileOperation extends UploadRemoteFileOperation
         raf = new RandomAccessFile(fileToUpload, "r");
         channel = raf.getChannel();
 
-        mFileRequestBody = new ChunkFromFileRequestBody(fileToUpload, mediaType, channel, CHUNK_SIZE);
-
-        synchronized (mDataTransferListeners) {
-            mFileRequestBody.addDatatransferProgressListeners(mDataTransferListeners);
-        }
-
         long offset = 0;
         String uriPrefix = client.getUploadsWebDavUri() + FileUtils.PATH_SEPARATOR + String.valueOf(mTransferId);
         long totalLength = fileToUpload.length();
         long chunkCount = (long) Math.ceil((double) totalLength / CHUNK_SIZE);
 
-        for (int chunkIndex = 0; chunkIndex < chunkCount; chunkIndex++, offset += CHUNK_SIZE) {
-            mPutMethod = new PutMethod(
-                    new URL(uriPrefix + FileUtils.PATH_SEPARATOR + chunkIndex)
-            );
+        if (mChunkSizeController != null && mParallelChunks == 1) {
+            try {
+                result = uploadChunksWithAdaptiveSize(client, fileToUpload, mediaType, channel, uriPrefix);
+            } finally {
+                channel.close();
+                raf.close();
+            }
+            return result;
+        }
+
+        Set<Long> storedChunks = Collections.emptySet();
+        if (mResumeUpload) {
+            // chunks out of the file would be joined into it, so the upload cannot go on without knowing them
+            Map<Long, Long> listedChunks = new TreeMap<>();
+            result = listStoredChunks(client, uriPrefix, listedChunks);
+            if (result.isSuccess()) {
+                storedChunks = findStoredChunks(listedChunks, totalLength, chunkCount);
+                result = deleteStoredChunks(client, uriPrefix, listedChunks.keySet(), chunkCount);
+            }
+            if (!result.isSuccess()) {
+                channel.close();
+                raf.close();
+                return result;
+            }
+        }
+
+        if (mParallelChunks > 1 && chunkCount > 1) {
+            try {
+                result = uploadChunksInParallel(client, fileToUpload, mediaType, channel, uriPrefix, chunkCount,
+                        storedChunks);
+            } finally {
+                channel.close();
+                raf.close();
+            }
+            return result;
+        }
+
+        mFileRequestBody = new ChunkFromFileRequestBody(fileToUpload, mediaType, channel, CHUNK_SIZE);
+
+        mFileRequestBody.addDatatransferProgressListener(mProgressDispatcher);
 
-            if (mRequiredEtag != null && mRequiredEtag.length() > 0) {
-                mPutMethod.addRequestHeader(IF_MATCH_HEADER, "\"" + mRequiredEtag + "\"");
+        for (int chunkIndex = 0; chunkIndex < chunkCount; chunkIndex++, offset += CHUNK_SIZE) {
+            if (storedChunks.contains((long) chunkIndex)) {
+                result = new RemoteOperationResult<>(OK);
+                continue;
             }
 
+            mPutMethod = createChunkPutMethod(client, uriPrefix, chunkIndex, chunkIndex == chunkCount - 1);
+
             ((ChunkFromFileRequestBody) mFileRequestBody).setOffset(offset);
 
             if (mCancellationRequested.get()) {
                 result = new RemoteOperationResult<>(new OperationCancelledException());
                 break;
             } else {
-                if (chunkIndex == chunkCount - 1) {
-                    // Added a high timeout to the last chunk due to when the last chunk
-                    // arrives to the server with the last PUT, all chunks get assembled
-                    // within that PHP request, so last one takes longer.
-                    mPutMethod.setReadTimeout(LAST_CHUNK_TIMEOUT, TimeUnit.MILLISECONDS);
-                }
-
                 mPutMethod.setRequestBody(mFileRequestBody);
 
                 status = client.executeHttpMethod(mPutMethod);
@@ -136,4 +262,323 @@ public class ChunkedUploadRemoteFileOperation extends UploadRemoteFileOperation
 
         return result;
     }
-}
\ No newline at end of file
+
+    /**
+     * Uploads up to {@link #mParallelChunks} chunks at a time with {@link #runInParallel(int, List)}, every chunk
+     * with its own request body reading from the shared channel. Stops at the first chunk failed.
+     */
+    private RemoteOperationResult uploadChunksInParallel(final OwnCloudClient client, final File fileToUpload,
+                                                         final MediaType mediaType, final FileChannel channel,
+                                                         final String uriPrefix, final long chunkCount,
+                                                         Set<Long> storedChunks)
+            throws Exception {
+
+        final long totalLength = fileToUpload.length();
+        final AtomicLong uploadedBytes = new AtomicLong(mResumedLength);
+        final AtomicReference<RemoteOperationResult> firstFailure = new AtomicReference<>();
+
+        // every body reports the progress in its chunk; listeners get the progress in the file
+        final OnDatatransferProgressListener progressAggregator = (read, transferred, total, absolutePath) ->
+                mProgressDispatcher.onTransferProgress(read, uploadedBytes.addAndGet(read), totalLength,
+                        absolutePath);
+
+        List<Callable<Void>> chunkTasks = new ArrayList<>();
+        for (long chunkIndex = 0; chunkIndex < chunkCount; chunkIndex++) {
+            if (storedChunks.contains(chunkIndex)) {
+                continue;
+            }
+            final long index = chunkIndex;
+            chunkTasks.add(() -> {
+                if (mCancellationRequested.get() || firstFailure.get() != null) {
+                    return null;
+                }
+                ChunkFromFileRequestBody chunkBody =
+                        new ChunkFromFileRequestBody(fileToUpload, mediaType, channel, CHUNK_SIZE);
+                chunkBody.setOffset(index * CHUNK_SIZE);
+                chunkBody.addDatatransferProgressListener(progressAggregator);
+
+                RemoteOperationResult chunkResult;
+                try {
+                    PutMethod putMethod =
+                            createChunkPutMethod(client, uriPrefix, index, index == chunkCount - 1);
+                    putMethod.setRequestBody(chunkBody);
+                    chunkResult = executeChunk(client, putMethod, index);
+                } catch (Exception e) {
+                    chunkResult = new RemoteOperationResult<>(e);
+                }
+
+                // chunks aborted because of the first failure fail too, but are not the cause
+                if (!chunkResult.isSuccess() && firstFailure.compareAndSet(null, chunkResult)) {
+                    abortPutMethodsInFlight();
+                }
+                return null;
+            });
+        }
+
+        runInParallel(mParallelChunks, chunkTasks);
+
+        if (mCancellationRequested.get()) {
+            return new RemoteOperationResult<>(new OperationCancelledException());
+        }
+        return (firstFailure.get() != null) ? firstFailure.get() : new RemoteOperationResult<>(OK);
+    }
+
+    /**
+     * Uploads the chunks one by one, every one with the size chosen by {@link #mChunkSizeController} from the
+     * previous ones. Chunks are still named by their position, so the server joins them in order.
+     */
+    private RemoteOperationResult uploadChunksWithAdaptiveSize(OwnCloudClient client, File fileToUpload,
+                                                               MediaType mediaType, FileChannel channel,
+                                                               String uriPrefix) throws Exception {
+        long totalLength = fileToUpload.length();
+        long chunkIndex = 0;
+        long offset = 0;
+
+        if (mResumeUpload) {
+            // chunks are sent in order, so only the first ones are kept
+            Map<Long, Long> storedChunks = new TreeMap<>();
+            RemoteOperationResult listResult = listStoredChunks(client, uriPrefix, storedChunks);
+            if (!listResult.isSuccess()) {
+                return listResult;
+            }
+            Long storedLength;
+            while ((storedLength = storedChunks.get(chunkIndex)) != null && storedLength > 0 &&
+                    offset + storedLength <= totalLength) {
+                offset += storedLength;
+                chunkIndex++;
+            }
+            mResumedLength = offset;
+
+            // chunks after them, e.g. sent in parallel or with other sizes, would be joined into the file
+            RemoteOperationResult deleteResult =
+                    deleteStoredChunks(client, uriPrefix, storedChunks.keySet(), chunkIndex);
+            if (!deleteResult.isSuccess()) {
+                return deleteResult;
+            }
+        }
+
+        ChunkFromFileRequestBody chunkBody = new ChunkFromFileRequestBody(fileToUpload, mediaType, channel,
+                mChunkSizeController.getChunkSize());
+        mFileRequestBody = chunkBody;
+
+        mFileRequestBody.addDatatransferProgressListener(mProgressDispatcher);
+
+        RemoteOperationResult result = new RemoteOperationResult<>(OK);
+        while (offset < totalLength) {
+            long chunkSize = mChunkSizeController.getChunkSize();
+            long chunkLength = Math.min(chunkSize, totalLength - offset);
+
+            mPutMethod = createChunkPutMethod(client, uriPrefix, chunkIndex, offset + chunkLength == totalLength);
+
+            chunkBody.setChunkSize(chunkSize);
+            chunkBody.setOffset(offset);
+
+            if (mCancellationRequested.get()) {
+                result = new RemoteOperationResult<>(new OperationCancelledException());
+                break;
+            }
+
+            mPutMethod.setRequestBody(mFileRequestBody);
+
+            long start = System.nanoTime();
+            int status;
+            try {
+                status = client.executeHttpMethod(mPutMethod);
+            } catch (Exception e) {
+                mChunkSizeController.onChunkFailed(chunkLength, getMillisSince(start));
+                throw e;
+            }
+
+            Log_OC.d(TAG, "Upload of " + mLocalPath + " to " + mRemotePath +
+                    ", chunk index " + chunkIndex + ", size " + chunkLength +
+                    ", HTTP result status " + status);
+
+            if (isSuccess(status)) {
+                mChunkSizeController.onChunkUploaded(chunkLength, getMillisSince(start));
+            } else {
+                mChunkSizeController.onChunkFailed(chunkLength, getMillisSince(start));
+                result = new RemoteOperationResult<>(mPutMethod);
+                break;
+            }
+
+            offset += chunkLength;
+            chunkIndex++;
+        }
+
+        return result;
+    }
+
+    private static long getMillisSince(long startNanos) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+    }
+
+    /**
+     * Finds the chunks stored in the server for the transfer with the length expected for {@link #CHUNK_SIZE}.
+     * <p>
+     * A chunk with other length, e.g. sent with the size chosen by a {@link ChunkSizeController}, moves the
+     * position of the ones after it in the file, so none of them is kept; they are sent again.
+     *
+     * @param listedChunks Length of every chunk stored, by index.
+     * @return Indexes of the chunks stored with the expected length and position.
+     */
+    private Set<Long> findStoredChunks(Map<Long, Long> listedChunks, long totalLength, long chunkCount) {
+        Set<Long> storedChunks = new HashSet<>();
+        mResumedLength = 0;
+        for (Map.Entry<Long, Long> storedChunk : listedChunks.entrySet()) {
+            long chunkIndex = storedChunk.getKey();
+            if (chunkIndex >= chunkCount) {
+                break;
+            }
+            long expectedLength = Math.min(CHUNK_SIZE, totalLength - chunkIndex * CHUNK_SIZE);
+            if (storedChunk.getValue() != expectedLength) {
+                break;
+            }
+            storedChunks.add(chunkIndex);
+            mResumedLength += expectedLength;
+        }
+        Log_OC.d(TAG, "Resuming upload of " + mLocalPath + " to " + mRemotePath + ": " +
+                storedChunks.size() + " of " + chunkCount + " chunks already stored");
+        return storedChunks;
+    }
+
+    /**
+     * Lists the chunks stored in the server for the transfer.
+     *
+     * @param storedChunks Map to fill with the length of every chunk stored by index; -1 if unknown.
+     * @return Success if the chunks were listed, also when there are none.
+     */
+    private RemoteOperationResult listStoredChunks(OwnCloudClient client, String uriPrefix,
+                                                   Map<Long, Long> storedChunks) {
+        try {
+            PropfindMethod propfindMethod = new PropfindMethod(
+                    new URL(uriPrefix),
+                    DavConstants.DEPTH_1,
+                    DavUtils.getLengthOnlyPropset()
+            );
+            int status = client.executeHttpMethod(propfindMethod);
+            if (status == HttpConstants.HTTP_NOT_FOUND) {
+                return new RemoteOperationResult<>(OK);
+            }
+            if (status != HttpConstants.HTTP_MULTI_STATUS) {
+                Log_OC.w(TAG, "Could not list the chunks of " + mRemotePath + ", HTTP status " + status);
+                return new RemoteOperationResult<>(propfindMethod);
+            }
+
+            for (Response member : propfindMethod.getMembers()) {
+                List<String> segments = member.getHref().pathSegments();
+                long chunkIndex;
+                try {
+                    chunkIndex = Long.parseLong(segments.get(segments.size() - 1));
+                } catch (NumberFormatException e) {
+                    continue;
+                }
+                if (chunkIndex < 0) {
+                    continue;
+                }
+                storedChunks.put(chunkIndex, -1L);
+                for (Property property : member.getProperties()) {
+                    if (property instanceof GetContentLength) {
+                        storedChunks.put(chunkIndex, ((GetContentLength) property).getContentLength());
+                    }
+                }
+            }
+
+        } catch (Exception e) {
+            Log_OC.w(TAG, "Could not list the chunks of " + mRemotePath + ": " + e.getMessage());
+            storedChunks.clear();
+            return new RemoteOperationResult<>(e);
+        }
+        return new RemoteOperationResult<>(OK);
+    }
+
+    /**
+     * Deletes the chunks stored in the server from an index on, so {@link MoveRemoteChunksFileOperation} does not
+     * join them into the file.
+     *
+     * @param listedChunks Indexes of the chunks stored in the server.
+     * @param fromIndex    First index to delete.
+     * @return Result of the first chunk that could not be deleted, or success.
+     */
+    private RemoteOperationResult deleteStoredChunks(OwnCloudClient client, String uriPrefix,
+                                                     Collection<Long> listedChunks, long fromIndex) {
+        for (long chunkIndex : listedChunks) {
+            if (chunkIndex < fromIndex) {
+                continue;
+            }
+            try {
+                DeleteMethod deleteMethod = new DeleteMethod(
+                        new URL(uriPrefix + FileUtils.PATH_SEPARATOR + chunkIndex)
+                );
+                int status = client.executeHttpMethod(deleteMethod);
+                if (status != HttpConstants.HTTP_OK && status != HttpConstants.HTTP_NO_CONTENT &&
+                        status != HttpConstants.HTTP_NOT_FOUND) {
+                    Log_OC.w(TAG, "Could not delete chunk " + chunkIndex + " of " + mRemotePath +
+                            ", HTTP status " + status);
+                    return new RemoteOperationResult<>(deleteMethod);
+                }
+
+            } catch (Exception e) {
+                Log_OC.w(TAG, "Could not delete chunk " + chunkIndex + " of " + mRemotePath + ": " +
+                        e.getMessage());
+                return new RemoteOperationResult<>(e);
+            }
+        }
+        return new RemoteOperationResult<>(OK);
+    }
+
+    private PutMethod createChunkPutMethod(OwnCloudClient client, String uriPrefix, long chunkIndex,
+                                           boolean lastChunk) throws Exception {
+        PutMethod putMethod = new PutMethod(
+                new URL(uriPrefix + FileUtils.PATH_SEPARATOR + chunkIndex)
+        );
+
+        if (mRequiredEtag != null && mRequiredEtag.length() > 0) {
+            putMethod.addRequestHeader(IF_MATCH_HEADER, "\"" + mRequiredEtag + "\"");
+        }
+
+        // chunks are stored apart until the upload is completed, so sending one again is safe
+        putMethod.setRetryPolicy(client.getRetryPolicy());
+
+        if (lastChunk) {
+            // Added a high timeout to the last chunk due to when the last chunk
+            // arrives to the server with the last PUT, all chunks get assembled
+            // within that PHP request, so last one takes longer.
+            putMethod.setReadTimeout(LAST_CHUNK_TIMEOUT, TimeUnit.MILLISECONDS);
+        }
+        return putMethod;
+    }
+
+    /**
+     * Sends a chunk, keeping its request available to {@link #cancel()} while it is in flight.
+     */
+    private RemoteOperationResult executeChunk(OwnCloudClient client, PutMethod putMethod, long chunkIndex)
+            throws Exception {
+        synchronized (mPutMethodsInFlight) {
+            if (mCancellationRequested.get()) {
+                return new RemoteOperationResult<>(new OperationCancelledException());
+            }
+            mPutMethodsInFlight.add(putMethod);
+        }
+        try {
+            int status = client.executeHttpMethod(putMethod);
+
+            Log_OC.d(TAG, "Upload of " + mLocalPath + " to " + mRemotePath +
+                    ", chunk index " + chunkIndex + ", HTTP result status " + status);
+
+            return isSuccess(status) ? new RemoteOperationResult<>(OK) : new RemoteOperationResult<>(putMethod);
+
+        } finally {
+            synchronized (mPutMethodsInFlight) {
+                mPutMethodsInFlight.remove(putMethod);
+            }
+        }
+    }
+
+    private void abortPutMethodsInFlight() {
+        synchronized (mPutMethodsInFlight) {
+            for (PutMethod putMethod : mPutMethodsInFlight) {
+                putMethod.abort();
+            }
+        }
+    }
+}
@@ -34,6 +34,7 @@ import com.owncloud.android.lib.common.http.HttpConstants;
 import com.owncloud.android.lib.common.http.methods.nonwebdav.GetMethod;
 import com.owncloud.android.lib.common.operations.RemoteOperation;
 import com.owncloud.android.lib.common.operations.RemoteOperationResult;
+import com.owncloud.android.lib.common.operations.RequestPriority;
 import com.owncloud.android.lib.common.utils.Log_OC;
 
 import java.net.URL;
@@ -76,6 +77,11 @@ public class GetRemoteSharesForFileOperation extends RemoteOperation<ShareParser
         mSubfiles = subfiles;
     }
 
+    @Override
+    protected RequestPriority getDefaultRequestPriority() {
+        return RequestPriority.INTERACTIVE;
+    }
+
     @Override
     protected RemoteOperationResult<ShareParserResult> run(OwnCloudClient client) {
         RemoteOperationResult<ShareParserResult> result;
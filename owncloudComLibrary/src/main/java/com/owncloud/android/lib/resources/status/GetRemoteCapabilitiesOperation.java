@@ -33,6 +33,7 @@ import com.owncloud.android.lib.common.OwnCloudClient;
 import com.owncloud.android.lib.common.http.HttpConstants;
 import com.owncloud.android.lib.common.http.methods.nonwebdav.GetMethod;
 import com.owncloud.android.lib.common.operations.RemoteOperation;
+import com.owncloud.android.lib.common.operations.RemoteOperationCoalescer;
 import com.owncloud.android.lib.common.operations.RemoteOperationResult;
 import com.owncloud.android.lib.common.utils.Log_OC;
 import org.json.JSONObject;
@@ -52,6 +53,8 @@ public class GetRemoteCapabilitiesOperation extends RemoteOperation<OCCapability
 
     private static final String TAG = GetRemoteCapabilitiesOperation.class.getSimpleName();
 
+    private static final String GET_METHOD = "GET";
+
     // OCS Routes
     private static final String OCS_ROUTE = "ocs/v2.php/cloud/capabilities";
 
@@ -121,15 +124,28 @@ public class GetRemoteCapabilitiesOperation extends RemoteOperation<OCCapability
 
     @Override
     protected RemoteOperationResult<OCCapability> run(OwnCloudClient client) {
-        RemoteOperationResult<OCCapability> result;
-
+        String url;
+        String key;
         try {
             Uri requestUri = client.getBaseUri();
             Uri.Builder uriBuilder = requestUri.buildUpon();
             uriBuilder.appendEncodedPath(OCS_ROUTE);    // avoid starting "/" in this method
             uriBuilder.appendQueryParameter(PARAM_FORMAT, VALUE_FORMAT);
+            url = uriBuilder.build().toString();
+            key = RemoteOperationCoalescer.buildKey(client, GET_METHOD, url, null);
+        } catch (Exception e) {
+            RemoteOperationResult<OCCapability> result = new RemoteOperationResult<>(e);
+            Log_OC.e(TAG, "Exception while getting capabilities", e);
+            return result;
+        }
+        return RemoteOperationCoalescer.execute(key, () -> getRemoteCapabilities(client, url));
+    }
 
-            GetMethod getMethod = new GetMethod(new URL(uriBuilder.build().toString()));
+    private RemoteOperationResult<OCCapability> getRemoteCapabilities(OwnCloudClient client, String url) {
+        RemoteOperationResult<OCCapability> result;
+
+        try {
+            GetMethod getMethod = new GetMethod(new URL(url));
 
             getMethod.addRequestHeader(OCS_API_HEADER, OCS_API_HEADER_VALUE);
 
@@ -36,6 +36,7 @@ import com.owncloud.android.lib.common.http.methods.webdav.DavUtils;
 import com.owncloud.android.lib.common.http.methods.webdav.PropfindMethod;
 import com.owncloud.android.lib.common.network.WebdavUtils;
 import com.owncloud.android.lib.common.operations.RemoteOperation;
+import com.owncloud.android.lib.common.operations.RemoteOperationCoalescer;
 import com.owncloud.android.lib.common.operations.RemoteOperationResult;
 import com.owncloud.android.lib.common.utils.Log_OC;
 
@@ -52,6 +53,10 @@ import static com.owncloud.android.lib.common.operations.RemoteOperationResult.R
 public class GetRemoteUserQuotaOperation extends RemoteOperation<GetRemoteUserQuotaOperation.RemoteQuota> {
 
     private static final String TAG = GetRemoteUserQuotaOperation.class.getSimpleName();
+
+    private static final String PROPFIND_METHOD = "PROPFIND";
+    private static final String PROPFIND_BODY = "depth=0;quota";
+
     private String mRemotePath;
 
     /**
@@ -65,11 +70,25 @@ public class GetRemoteUserQuotaOperation extends RemoteOperation<GetRemoteUserQu
 
     @Override
     protected RemoteOperationResult<RemoteQuota> run(OwnCloudClient client) {
+        String url;
+        String key;
+        try {
+            url = client.getUserFilesWebDavUri() + WebdavUtils.encodePath(mRemotePath);
+            key = RemoteOperationCoalescer.buildKey(client, PROPFIND_METHOD, url, PROPFIND_BODY);
+        } catch (Exception e) {
+            RemoteOperationResult<RemoteQuota> result = new RemoteOperationResult<>(e);
+            Log_OC.e(TAG, "Get quota from " + mRemotePath + ": " + result.getLogMessage(), e);
+            return result;
+        }
+        return RemoteOperationCoalescer.execute(key, () -> getRemoteUserQuota(client, url));
+    }
+
+    private RemoteOperationResult<RemoteQuota> getRemoteUserQuota(OwnCloudClient client, String url) {
         RemoteOperationResult<RemoteQuota> result = null;
 
         try {
             PropfindMethod propfindMethod = new PropfindMethod(
-                    new URL(client.getUserFilesWebDavUri() + WebdavUtils.encodePath(mRemotePath)),
+                    new URL(url),
                     DEPTH_0,
                     DavUtils.getQuotaPropSet());
 